@@ -0,0 +1,195 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Channel for fixed size records stored in an off heap arena of slots. The publisher claims a slot, writes the
+ * record through a {@link Flyweight} and commits it. Each subscriber reads the same slot through its own
+ * flyweight on its fiber. No objects are created per message.
+ *
+ * A slot is reused only after every subscriber has read it. The publisher waits when the slowest subscriber is a
+ * full arena behind. There must be a single publishing thread.
+ *
+ * Records must only be read inside the callback; the slot may be overwritten once the callback returns.
+ */
+public class ArenaChannel<F extends Flyweight> {
+
+    private static final Subscription<?>[] EMPTY = new Subscription<?>[0];
+
+    private final ByteBuffer _arena;
+    private final int _slotSize;
+    private final int _mask;
+    private final F _publisherFlyweight;
+    private final AtomicLong _published = new AtomicLong();
+    private final Lock _lock = new ReentrantLock();
+    private volatile Subscription<?>[] _subscribers = EMPTY;
+    private long _claimed = -1;
+    private long _minCursor;
+
+    /**
+     * @param capacity  number of slots. Rounded up to a power of two.
+     * @param slotSize  bytes per record
+     * @param flyweight used by the publisher to write records
+     */
+    public ArenaChannel(int capacity, int slotSize, F flyweight) {
+        int slots = 1;
+        while (slots < capacity) {
+            slots <<= 1;
+        }
+        _arena = ByteBuffer.allocateDirect(slots * slotSize).order(ByteOrder.nativeOrder());
+        _slotSize = slotSize;
+        _mask = slots - 1;
+        _publisherFlyweight = flyweight;
+    }
+
+    /**
+     * Claims the next slot, waiting until every subscriber has read the record it held.
+     *
+     * @return the publisher's flyweight wrapped over the slot
+     */
+    public F claim() {
+        if (_claimed >= 0) {
+            throw new IllegalStateException("Slot already claimed");
+        }
+        long seq = _published.get();
+        while (seq - _minCursor > _mask) {
+            _minCursor = minCursor(seq);
+            if (seq - _minCursor > _mask) {
+                LockSupport.parkNanos(1000);
+            }
+        }
+        _claimed = seq;
+        _publisherFlyweight.wrap(_arena, offset(seq));
+        return _publisherFlyweight;
+    }
+
+    /**
+     * Publishes the claimed slot to subscribers.
+     */
+    public void commit() {
+        if (_claimed < 0) {
+            throw new IllegalStateException("No slot claimed");
+        }
+        // a full fence, so a subscriber clearing its scheduled flag either sees this record or is signalled
+        _published.set(_claimed + 1);
+        _claimed = -1;
+        for (Subscription<?> sub : _subscribers) {
+            sub.signal();
+        }
+    }
+
+    private long minCursor(long published) {
+        long min = published;
+        for (Subscription<?> sub : _subscribers) {
+            min = Math.min(min, sub._cursor.get());
+        }
+        return min;
+    }
+
+    private int offset(long seq) {
+        return (int) (seq & _mask) * _slotSize;
+    }
+
+    public int subscriberCount() {
+        return _subscribers.length;
+    }
+
+    /**
+     * Subscribes to records committed from now on.
+     *
+     * @param flyweight read only view used on the fiber. Must not be shared with other subscriptions.
+     */
+    public Disposable subscribe(DisposingExecutor fiber, F flyweight, Callback<F> receive) {
+        final Subscription<F> sub = new Subscription<F>(this, fiber, flyweight, receive);
+        Disposable unSub = new Disposable() {
+            public void dispose() {
+                sub._disposed = true;
+                remove(sub);
+                sub._fiber.remove(this);
+            }
+        };
+        fiber.add(unSub);
+        _lock.lock();
+        try {
+            // the publisher cannot reuse slots from the cursor on once the subscription is visible
+            sub._cursor.set(_published.get());
+            Subscription<?>[] resized = new Subscription<?>[_subscribers.length + 1];
+            System.arraycopy(_subscribers, 0, resized, 0, _subscribers.length);
+            resized[_subscribers.length] = sub;
+            _subscribers = resized;
+        } finally {
+            _lock.unlock();
+        }
+        return unSub;
+    }
+
+    private void remove(Subscription<F> sub) {
+        _lock.lock();
+        try {
+            Subscription<?>[] subs = _subscribers;
+            for (int i = 0; i < subs.length; i++) {
+                if (subs[i] == sub) {
+                    Subscription<?>[] resized = new Subscription<?>[subs.length - 1];
+                    System.arraycopy(subs, 0, resized, 0, i);
+                    System.arraycopy(subs, i + 1, resized, i, resized.length - i);
+                    _subscribers = resized;
+                    return;
+                }
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private static class Subscription<F extends Flyweight> implements Runnable {
+        private final ArenaChannel<F> _channel;
+        private final DisposingExecutor _fiber;
+        private final F _flyweight;
+        private final Callback<F> _receive;
+        private final AtomicLong _cursor = new AtomicLong();
+        private final AtomicBoolean _scheduled = new AtomicBoolean();
+        private volatile boolean _disposed;
+
+        private Subscription(ArenaChannel<F> channel, DisposingExecutor fiber, F flyweight, Callback<F> receive) {
+            _channel = channel;
+            _fiber = fiber;
+            _flyweight = flyweight;
+            _receive = receive;
+        }
+
+        private void signal() {
+            if (!_scheduled.get() && _scheduled.compareAndSet(false, true)) {
+                _fiber.execute(this);
+            }
+        }
+
+        public void run() {
+            long cursor = _cursor.get();
+            long end = _channel._published.get();
+            while (cursor < end && !_disposed) {
+                _flyweight.wrap(_channel._arena, _channel.offset(cursor));
+                _receive.onMessage(_flyweight);
+                _cursor.lazySet(++cursor);
+            }
+            _scheduled.set(false);
+            if (_channel._published.get() > cursor && !_disposed) {
+                signal();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Flushing ArenaChannel via " + _receive;
+        }
+    }
+}
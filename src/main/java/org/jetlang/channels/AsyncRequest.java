@@ -2,6 +2,7 @@ package org.jetlang.channels;
 
 import org.jetlang.core.Callback;
 import org.jetlang.core.Disposable;
+import org.jetlang.core.TimeoutWheel;
 import org.jetlang.fibers.Fiber;
 
 import java.util.List;
@@ -11,13 +12,28 @@ public class AsyncRequest<R, V> {
     private Fiber target;
     private BatchTimeout<V> timeout;
     private int responses = 1;
+    private TimeoutWheel timeouts;
 
     public AsyncRequest(Fiber target) {
         this.target = target;
     }
 
+    /**
+     * Timeouts will be tracked by the wheel rather than individually scheduled on the fiber.
+     *
+     * @param target   fiber that receives replies
+     * @param timeouts wheel owned by the target fiber
+     */
+    public AsyncRequest(Fiber target, TimeoutWheel timeouts) {
+        if (timeouts.getFiber() != target) {
+            throw new IllegalArgumentException("TimeoutWheel must run on the target fiber");
+        }
+        this.target = target;
+        this.timeouts = timeouts;
+    }
+
     public AsyncRequest<R, V> setTimeout(Callback<List<V>> onTimeout, long time, TimeUnit unit) {
-        timeout = new BatchTimeout<V>(onTimeout, time, unit);
+        timeout = new BatchTimeout<V>(onTimeout, time, unit, timeouts);
         return this;
     }
 
@@ -45,17 +61,25 @@ public class AsyncRequest<R, V> {
         return SingleReply.publish(fiber, channel, req, onReply, timeout, unit, onTimeout);
     }
 
+    public static <R, V> Disposable withOneReply(Fiber fiber, TimeoutWheel timeouts, RequestChannel<R, V> channel,
+                                                 R req, Callback<V> onReply,
+                                                 long timeout, TimeUnit unit, Runnable onTimeout) {
+        return SingleReply.publish(fiber, timeouts, channel, req, onReply, timeout, unit, onTimeout);
+    }
+
 }
 
 class BatchTimeout<V> {
     final Callback<List<V>> cb;
     final long time;
     final TimeUnit unit;
+    final TimeoutWheel wheel;
 
-    public BatchTimeout(Callback<List<V>> cb, long time, TimeUnit unit) {
+    public BatchTimeout(Callback<List<V>> cb, long time, TimeUnit unit, TimeoutWheel wheel) {
         this.cb = cb;
         this.time = time;
         this.unit = unit;
+        this.wheel = wheel;
     }
 
 }
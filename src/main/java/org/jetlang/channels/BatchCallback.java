@@ -49,7 +49,9 @@ class BatchCallback<R, V> implements Callback<V>, Runnable, Disposable {
         synchronized (lock) {
             final Disposable requestDispose = channel.publish(target, req, this);
             if (timeout != null) {
-                final Disposable timer = target.schedule(this, timeout.time, timeout.unit);
+                final Disposable timer = timeout.wheel != null
+                        ? timeout.wheel.schedule(this, timeout.time, timeout.unit)
+                        : target.schedule(this, timeout.time, timeout.unit);
                 this.d = new Disposable() {
                     public void dispose() {
                         requestDispose.dispose();
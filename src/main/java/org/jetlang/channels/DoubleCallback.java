@@ -0,0 +1,8 @@
+package org.jetlang.channels;
+
+/**
+ * Callback for double values, avoiding boxing.
+ */
+public interface DoubleCallback {
+    void onMessage(double value);
+}
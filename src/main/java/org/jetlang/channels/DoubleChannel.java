@@ -0,0 +1,30 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+/**
+ * Channel for double values. Values are stored in preallocated arrays per subscriber and delivered by a
+ * single event per batch, so publishing does not allocate.
+ */
+public class DoubleChannel extends PrimitiveChannel {
+
+    public void publish(double value) {
+        publishToAll(0, value);
+    }
+
+    public Disposable subscribe(DisposingExecutor fiber, final DoubleCallback receive) {
+        return subscribe(new PrimitiveSubscription(fiber, false, true) {
+            void deliver(PrimitiveQueue batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    receive.onMessage(batch.getDouble(i));
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Flushing DoubleChannel via " + receive;
+            }
+        });
+    }
+}
@@ -0,0 +1,29 @@
+package org.jetlang.channels;
+
+/**
+ * Action taken by a {@link FlowControlledSubscriber} when a publish arrives and the subscriber has
+ * no credits left.
+ */
+public enum FlowControlPolicy {
+    /**
+     * Publishing thread blocks until the subscriber processes a message. Can deadlock if the subscribing
+     * fiber publishes to its own exhausted subscription.
+     */
+    Block,
+    /**
+     * The new message is discarded.
+     */
+    DropNewest,
+    /**
+     * The oldest pending message is discarded to make room for the new message.
+     */
+    DropOldest,
+    /**
+     * The most recent pending message is replaced by the new message.
+     */
+    Conflate,
+    /**
+     * The subscription is disposed and all pending messages are discarded.
+     */
+    Disconnect
+}
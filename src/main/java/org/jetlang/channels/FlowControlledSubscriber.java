@@ -0,0 +1,347 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.core.Filter;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Subscription that bounds the number of undelivered messages for a single subscriber. The subscriber
+ * grants a fixed number of credits. Each publish consumes a credit and the credit is returned once the
+ * subscriber's callback for that message has returned. When credits are exhausted the configured {@link FlowControlPolicy} is applied
+ * to that subscriber only, so a slow consumer can neither exhaust memory nor stall publishers feeding
+ * other subscribers (unless {@link FlowControlPolicy#Block} is chosen).
+ *
+ * Pending messages are held by the subscription, not the fiber queue. At most one flush is queued on the
+ * fiber at any time.
+ *
+ * Delivery can also be driven by demand, following the Reactive Streams contract: constructed with an
+ * initial demand, messages are only delivered while the subscriber has requested them with
+ * {@link #request(long)}. Credits then bound the messages buffered while waiting for demand.
+ */
+public class FlowControlledSubscriber<T> extends BaseSubscription<T> implements Disposable {
+
+    private final Lock _lock = new ReentrantLock();
+    private final Condition _creditAvailable = _lock.newCondition();
+    private final ArrayDeque<T> _pending = new ArrayDeque<T>();
+    private final Callback<T> _receive;
+    private final int _credits;
+    private final FlowControlPolicy _policy;
+    private final Runnable _flushRunnable;
+
+    private long _demand;
+    private int _inFlight;
+    private boolean _flushPending;
+    private boolean _disconnected;
+    private Disposable _subscription;
+
+    private long _published;
+    private long _delivered;
+    private long _dropped;
+    private long _conflated;
+
+    public FlowControlledSubscriber(DisposingExecutor fiber, Callback<T> receive, Filter<T> filter,
+                                    int credits, FlowControlPolicy policy) {
+        this(fiber, receive, filter, credits, policy, Long.MAX_VALUE);
+    }
+
+    public FlowControlledSubscriber(DisposingExecutor fiber, Callback<T> receive, int credits, FlowControlPolicy policy) {
+        this(fiber, receive, null, credits, policy);
+    }
+
+    /**
+     * Creates a demand driven subscription.
+     *
+     * @param initialDemand messages that may be delivered before {@link #request(long)} is called.
+     *                      Long.MAX_VALUE for unbounded demand.
+     */
+    public FlowControlledSubscriber(DisposingExecutor fiber, Callback<T> receive, Filter<T> filter,
+                                    int credits, FlowControlPolicy policy, long initialDemand) {
+        super(fiber, filter);
+        if (credits < 1) {
+            throw new IllegalArgumentException("credits must be positive: " + credits);
+        }
+        _receive = receive;
+        _credits = credits;
+        _policy = policy;
+        _demand = initialDemand;
+        _flushRunnable = new Runnable() {
+            public void run() {
+                flush();
+            }
+
+            @Override
+            public String toString() {
+                return "Flushing " + FlowControlledSubscriber.this + " via " + _receive.toString();
+            }
+        };
+    }
+
+    /**
+     * Subscribes to the channel. The returned Disposable is this instance. Required for
+     * {@link FlowControlPolicy#Disconnect} to remove the subscription from the channel.
+     */
+    public Disposable subscribe(Subscriber<T> channel) {
+        Disposable sub = channel.subscribe(this);
+        _lock.lock();
+        try {
+            _subscription = sub;
+            if (!_disconnected) {
+                return this;
+            }
+        } finally {
+            _lock.unlock();
+        }
+        sub.dispose();
+        return this;
+    }
+
+    @Override
+    protected void onMessageOnProducerThread(T msg) {
+        Disposable toDispose = null;
+        _lock.lock();
+        try {
+            if (_disconnected) {
+                return;
+            }
+            _published++;
+            if (_pending.size() + _inFlight >= _credits) {
+                switch (_policy) {
+                    case Block:
+                        while (_pending.size() + _inFlight >= _credits && !_disconnected) {
+                            try {
+                                _creditAvailable.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new RuntimeException(e);
+                            }
+                        }
+                        if (_disconnected) {
+                            return;
+                        }
+                        break;
+                    case DropNewest:
+                        _dropped++;
+                        return;
+                    case DropOldest:
+                        // the message being processed cannot be evicted, so with nothing queued
+                        // the newest message is kept in its place
+                        if (_pending.pollFirst() != null) {
+                            _dropped++;
+                        }
+                        break;
+                    case Conflate:
+                        if (_pending.pollLast() != null) {
+                            _conflated++;
+                        }
+                        break;
+                    case Disconnect:
+                        _dropped += _pending.size() + 1;
+                        toDispose = disconnect();
+                        return;
+                }
+            }
+            _pending.addLast(msg);
+            scheduleFlush();
+        } finally {
+            _lock.unlock();
+            if (toDispose != null) {
+                toDispose.dispose();
+            }
+        }
+    }
+
+    /**
+     * Grants demand for additional messages. Demand that reaches Long.MAX_VALUE is unbounded.
+     * Can be called from any thread.
+     */
+    public void request(long n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("demand must be positive: " + n);
+        }
+        _lock.lock();
+        try {
+            _demand = _demand + n < 0 ? Long.MAX_VALUE : _demand + n;
+            if (!_pending.isEmpty()) {
+                scheduleFlush();
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!_flushPending && _demand > 0) {
+            _flushPending = true;
+            getQueue().execute(_flushRunnable);
+        }
+    }
+
+    /**
+     * Delivers the messages pending when the flush started, returning one credit as each callback returns.
+     * Messages arriving during the flush are delivered by a new flush queued behind other events on the fiber.
+     */
+    private void flush() {
+        int count;
+        _lock.lock();
+        try {
+            count = _pending.size();
+        } finally {
+            _lock.unlock();
+        }
+        for (int i = 0; i < count; i++) {
+            T msg;
+            _lock.lock();
+            try {
+                msg = _demand > 0 ? _pending.pollFirst() : null;
+                if (msg == null) {
+                    _flushPending = false;
+                    return;
+                }
+                if (_demand != Long.MAX_VALUE) {
+                    _demand--;
+                }
+                _delivered++;
+                _inFlight++;
+            } finally {
+                _lock.unlock();
+            }
+            try {
+                _receive.onMessage(msg);
+            } finally {
+                returnCredit();
+            }
+        }
+        _lock.lock();
+        try {
+            if (_pending.isEmpty() || _disconnected || _demand == 0) {
+                _flushPending = false;
+            } else {
+                getQueue().execute(_flushRunnable);
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private void returnCredit() {
+        _lock.lock();
+        try {
+            _inFlight--;
+            _creditAvailable.signal();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private Disposable disconnect() {
+        _disconnected = true;
+        _pending.clear();
+        _creditAvailable.signalAll();
+        Disposable sub = _subscription;
+        _subscription = null;
+        return sub;
+    }
+
+    /**
+     * Removes the subscription and discards pending messages. Blocked publishers are released.
+     */
+    public void dispose() {
+        Disposable sub;
+        _lock.lock();
+        try {
+            sub = disconnect();
+        } finally {
+            _lock.unlock();
+        }
+        if (sub != null) {
+            sub.dispose();
+        }
+    }
+
+    /**
+     * @return number of messages published but not yet delivered to the subscriber
+     */
+    public int getLag() {
+        _lock.lock();
+        try {
+            return _pending.size();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * @return credits currently available to publishers
+     */
+    public int getAvailableCredits() {
+        _lock.lock();
+        try {
+            return _disconnected ? 0 : _credits - _pending.size() - _inFlight;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * @return messages that may still be delivered before more demand is requested
+     */
+    public long getDemand() {
+        _lock.lock();
+        try {
+            return _demand;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public long getPublishedCount() {
+        _lock.lock();
+        try {
+            return _published;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public long getDeliveredCount() {
+        _lock.lock();
+        try {
+            return _delivered;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        _lock.lock();
+        try {
+            return _dropped;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public long getConflatedCount() {
+        _lock.lock();
+        try {
+            return _conflated;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public boolean isDisconnected() {
+        _lock.lock();
+        try {
+            return _disconnected;
+        } finally {
+            _lock.unlock();
+        }
+    }
+}
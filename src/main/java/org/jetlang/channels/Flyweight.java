@@ -0,0 +1,15 @@
+package org.jetlang.channels;
+
+import java.nio.ByteBuffer;
+
+/**
+ * View of a fixed layout record stored in a buffer. Implementations read and write fields with absolute
+ * get/put operations relative to the wrapped offset, so no objects are created per record.
+ */
+public interface Flyweight {
+
+    /**
+     * Points the flyweight at the record starting at the offset.
+     */
+    void wrap(ByteBuffer buffer, int offset);
+}
@@ -0,0 +1,58 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adapts a request on a {@link RequestChannel} to a {@link CompletableFuture}. The future is completed by
+ * the first reply and the request session is then closed. Cancelling the future closes the session.
+ */
+public class FutureReply<V> extends CompletableFuture<V> implements Callback<V> {
+
+    private volatile Disposable session;
+
+    /**
+     * Publishes a request whose future is completed directly on the replying thread. Dependent stages
+     * added without an executor run inline on the replying fiber, so they must not block. Use
+     * {@link #publish(RequestChannel, Object, DisposingExecutor)} to complete on another fiber.
+     */
+    public static <R, V> FutureReply<V> publish(RequestChannel<R, V> channel, R req) {
+        return publish(channel, req, InlineExecutor.INSTANCE);
+    }
+
+    /**
+     * Publishes a request whose future is completed on the supplied executor.
+     */
+    public static <R, V> FutureReply<V> publish(RequestChannel<R, V> channel, R req, DisposingExecutor completeOn) {
+        FutureReply<V> future = new FutureReply<V>();
+        Disposable d = channel.publish(completeOn, req, future);
+        future.session = d;
+        if (future.isDone()) {
+            d.dispose();
+        }
+        return future;
+    }
+
+    public void onMessage(V message) {
+        if (complete(message)) {
+            closeSession();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        closeSession();
+        return cancelled;
+    }
+
+    private void closeSession() {
+        Disposable d = session;
+        if (d != null) {
+            d.dispose();
+        }
+    }
+}
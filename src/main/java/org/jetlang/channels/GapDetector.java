@@ -0,0 +1,46 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+
+/**
+ * Checks that sequenced messages arrive in order without gaps, e.g. behind a subscription that may drop
+ * messages. Messages at or below the last sequence seen are discarded as duplicates.
+ */
+public class GapDetector<T> implements Callback<Sequenced<T>> {
+
+    /**
+     * Notified before the message that follows a gap is delivered.
+     */
+    public interface GapHandler {
+        void onGap(long expectedSequence, long receivedSequence);
+    }
+
+    private final Callback<Sequenced<T>> _target;
+    private final GapHandler _onGap;
+    private long _lastSequence;
+
+    /**
+     * @param lastSequence sequence already processed, e.g. from a {@link SnapshotChannel.Snapshot}
+     */
+    public GapDetector(long lastSequence, Callback<Sequenced<T>> target, GapHandler onGap) {
+        _lastSequence = lastSequence;
+        _target = target;
+        _onGap = onGap;
+    }
+
+    public void onMessage(Sequenced<T> message) {
+        long seq = message.getSequence();
+        if (seq <= _lastSequence) {
+            return;
+        }
+        if (seq != _lastSequence + 1) {
+            _onGap.onGap(_lastSequence + 1, seq);
+        }
+        _lastSequence = seq;
+        _target.onMessage(message);
+    }
+
+    public long getLastSequence() {
+        return _lastSequence;
+    }
+}
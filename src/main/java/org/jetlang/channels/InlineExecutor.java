@@ -0,0 +1,28 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+/**
+ * Runs events on the calling thread. Used as a reply target when replies should be handled on the
+ * replying fiber without a hop.
+ */
+class InlineExecutor implements DisposingExecutor {
+
+    static final InlineExecutor INSTANCE = new InlineExecutor();
+
+    public void execute(Runnable command) {
+        command.run();
+    }
+
+    public void add(Disposable disposable) {
+    }
+
+    public boolean remove(Disposable disposable) {
+        return false;
+    }
+
+    public int size() {
+        return 0;
+    }
+}
@@ -0,0 +1,237 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append only log of encoded messages stored in memory mapped segment files named by the sequence of their
+ * first message. Each record is an int length and an int checksum of the length and message, followed by the
+ * message. The length is written last, but pages of a mapped file can reach the disk in any order, so recovery
+ * ends the log at the first record whose checksum does not match.
+ *
+ * Appends must be serialized by the caller. Records below a sequence published by the caller can be read from
+ * any thread.
+ */
+class Journal<T> {
+
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER_SIZE = 8;
+
+    private final File dir;
+    private final int segmentSize;
+    private final MessageCodec<T> codec;
+    private final List<Segment> segments = new CopyOnWriteArrayList<Segment>();
+    private Segment current;
+    private ByteBuffer writer;
+    private long sequence;
+
+    Journal(File dir, int segmentSize, MessageCodec<T> codec) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create journal directory: " + dir);
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.codec = codec;
+        String[] names = dir.list();
+        Arrays.sort(names);
+        for (String name : names) {
+            if (name.endsWith(SUFFIX)) {
+                long first = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                Segment segment = new Segment(new File(dir, name), first, 0);
+                segment.recover();
+                segments.add(segment);
+                current = segment;
+            }
+        }
+        if (current == null) {
+            roll(0);
+        } else {
+            current.clearTail();
+            writer = current.buffer.duplicate().order(current.buffer.order());
+            writer.position(current.end);
+            sequence = current.first + current.count;
+        }
+    }
+
+    /**
+     * @return sequence of the next message appended
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    void append(T msg) throws IOException {
+        if (!encode(msg)) {
+            roll(sequence);
+            if (!encode(msg)) {
+                throw new IllegalArgumentException("Message exceeds segment size: " + msg);
+            }
+        }
+        current.count++;
+        sequence++;
+    }
+
+    private boolean encode(T msg) {
+        int start = writer.position();
+        if (writer.remaining() <= HEADER_SIZE) {
+            return false;
+        }
+        boolean encoded = false;
+        try {
+            writer.position(start + HEADER_SIZE);
+            codec.encode(msg, writer);
+            encoded = true;
+        } catch (BufferOverflowException e) {
+            // next segment
+        } finally {
+            if (!encoded) {
+                writer.position(start);
+            }
+        }
+        if (encoded) {
+            int length = writer.position() - start - HEADER_SIZE;
+            writer.putInt(start + 4, checksum(writer, start + HEADER_SIZE, length));
+            writer.putInt(start, length);
+            current.end = writer.position();
+        }
+        return encoded;
+    }
+
+    private void roll(long first) throws IOException {
+        if (current != null) {
+            current.buffer.force();
+        }
+        Segment segment = new Segment(new File(dir, String.format("%020d", first) + SUFFIX), first, segmentSize);
+        segments.add(segment);
+        current = segment;
+        writer = segment.buffer.duplicate().order(segment.buffer.order());
+    }
+
+    /**
+     * FNV-1a hash of the length and the message bytes.
+     */
+    private static int checksum(ByteBuffer buffer, int start, int length) {
+        int hash = 0x811c9dc5 ^ length;
+        for (int i = start; i < start + length; i++) {
+            hash = (hash ^ (buffer.get(i) & 0xff)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Flushes appended records to the storage device. Must be serialized with appends.
+     */
+    void force() {
+        current.buffer.force();
+    }
+
+    /**
+     * Flushes the records below the sequence to the storage device. Can run concurrently with appends. Only the
+     * segment holding the last of those records is forced; earlier segments were forced when the journal rolled.
+     */
+    void force(long to) {
+        Segment last = null;
+        for (Segment segment : segments) {
+            if (segment.first < to) {
+                last = segment;
+            }
+        }
+        if (last != null) {
+            last.buffer.force();
+        }
+    }
+
+    /**
+     * Decodes the records from the first sequence up to, but excluding, the end sequence.
+     */
+    void read(long from, long to, Callback<T> target) {
+        for (Segment segment : segments) {
+            if (from >= to) {
+                return;
+            }
+            if (from < segment.first + segment.count) {
+                from = segment.read(from, to, target);
+            }
+        }
+    }
+
+    void close() throws IOException {
+        force();
+        for (Segment segment : segments) {
+            segment.file.close();
+        }
+    }
+
+    private class Segment {
+        private final long first;
+        private final RandomAccessFile file;
+        private final MappedByteBuffer buffer;
+        private volatile int count;
+        private int end;
+
+        private Segment(File path, long first, int size) throws IOException {
+            this.first = first;
+            this.file = new RandomAccessFile(path, "rw");
+            if (file.length() < size) {
+                file.setLength(size);
+            }
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            buffer.order(ByteOrder.nativeOrder());
+        }
+
+        private void recover() {
+            int pos = 0;
+            while (pos + HEADER_SIZE <= buffer.limit()) {
+                int length = buffer.getInt(pos);
+                if (length <= 0 || pos + HEADER_SIZE + length > buffer.limit()
+                        || buffer.getInt(pos + 4) != checksum(buffer, pos + HEADER_SIZE, length)) {
+                    break;
+                }
+                pos += HEADER_SIZE + length;
+                count++;
+            }
+            end = pos;
+        }
+
+        /**
+         * Zeroes a torn record left after the end, so records appended over it cannot line up with its remains.
+         */
+        private void clearTail() {
+            if (end + 4 <= buffer.limit() && buffer.getInt(end) != 0) {
+                for (int i = end; i < buffer.limit(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+        }
+
+        private long read(long from, long to, Callback<T> target) {
+            ByteBuffer reader = buffer.duplicate().order(buffer.order());
+            int pos = 0;
+            long seq = first;
+            long last = Math.min(to, first + count);
+            while (seq < last) {
+                int length = reader.getInt(pos);
+                if (seq >= from) {
+                    reader.limit(pos + HEADER_SIZE + length);
+                    reader.position(pos + HEADER_SIZE);
+                    target.onMessage(codec.decode(reader));
+                    reader.limit(reader.capacity());
+                }
+                pos += HEADER_SIZE + length;
+                seq++;
+            }
+            return Math.max(from, last);
+        }
+    }
+}
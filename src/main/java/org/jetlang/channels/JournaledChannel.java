@@ -0,0 +1,195 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Channel that appends every published message to a memory mapped, segmented journal before delivering it
+ * to subscribers. Subscribers can replay the journal from any sequence and continue with live messages without
+ * gaps or duplicates, so a restarted fiber can rebuild its state from the journal.
+ *
+ * When forcing to disk, publishing uses group commit. Messages are appended by the publishing thread, then one
+ * publisher at a time forces and delivers every appended message as a batch. A publisher may therefore return
+ * before its message is delivered, when another publisher is delivering the batch it joined. Without forcing,
+ * each message is journaled and delivered by its publisher.
+ *
+ * Without forcing, journaled messages survive a crash of the process but not of the operating system.
+ */
+public class JournaledChannel<T> implements Channel<T>, Disposable {
+
+    private final Journal<T> _journal;
+    private final Channel<T> _target;
+    private final boolean _force;
+    private final Object _appendLock = new Object();
+    private final Lock _deliveryLock = new ReentrantLock();
+    private ArrayList<T> _appended = new ArrayList<T>();
+    private ArrayList<T> _delivering = new ArrayList<T>();
+    private boolean _committing;
+    private long _delivered;
+
+    /**
+     * Opens or creates the journal in the directory. Sequences continue from the last journaled message.
+     *
+     * @param segmentSize bytes per segment file. Limits the largest message.
+     * @param force       true to force each batch to disk before delivery
+     */
+    public JournaledChannel(File dir, int segmentSize, MessageCodec<T> codec, boolean force) throws IOException {
+        this(dir, segmentSize, codec, force, new MemoryChannel<T>());
+    }
+
+    public JournaledChannel(File dir, int segmentSize, MessageCodec<T> codec, boolean force, Channel<T> target)
+            throws IOException {
+        _journal = new Journal<T>(dir, segmentSize, codec);
+        _target = target;
+        _force = force;
+        _delivered = _journal.sequence();
+    }
+
+    /**
+     * @throws RuntimeException if the message cannot be journaled. The message is not delivered.
+     */
+    public void publish(T msg) {
+        if (!_force) {
+            // nothing to wait for, so journal and deliver in one step
+            _deliveryLock.lock();
+            try {
+                append(msg);
+                _target.publish(msg);
+                _delivered++;
+            } finally {
+                _deliveryLock.unlock();
+            }
+            return;
+        }
+        synchronized (_appendLock) {
+            append(msg);
+            _appended.add(msg);
+            if (_committing) {
+                return;
+            }
+            _committing = true;
+        }
+        commit();
+    }
+
+    private void append(T msg) {
+        try {
+            _journal.append(msg);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void commit() {
+        boolean done = false;
+        try {
+            while (true) {
+                ArrayList<T> batch;
+                long end;
+                synchronized (_appendLock) {
+                    if (_appended.isEmpty()) {
+                        _committing = false;
+                        done = true;
+                        return;
+                    }
+                    batch = _appended;
+                    _appended = _delivering;
+                    _delivering = batch;
+                    end = _journal.sequence();
+                }
+                // appends continue while forcing, so the batch is forced by sequence rather than current segment
+                _journal.force(end);
+                _deliveryLock.lock();
+                try {
+                    for (int i = 0; i < batch.size(); i++) {
+                        _target.publish(batch.get(i));
+                    }
+                    _delivered += batch.size();
+                } finally {
+                    _deliveryLock.unlock();
+                    batch.clear();
+                }
+            }
+        } finally {
+            if (!done) {
+                synchronized (_appendLock) {
+                    _committing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return sequence of the next message to be delivered. Equal to the number of messages ever delivered.
+     */
+    public long getSequence() {
+        _deliveryLock.lock();
+        try {
+            return _delivered;
+        } finally {
+            _deliveryLock.unlock();
+        }
+    }
+
+    public Disposable subscribe(DisposingExecutor executor, Callback<T> receive) {
+        return _target.subscribe(executor, receive);
+    }
+
+    public Disposable subscribe(Subscribable<T> sub) {
+        return _target.subscribe(sub);
+    }
+
+    /**
+     * Delivers journaled messages from the sequence, followed by live messages. The journal is read on the
+     * subscriber's fiber.
+     *
+     * @param sequence first message to deliver. Must not exceed {@link #getSequence()}.
+     */
+    public Disposable subscribeFrom(final long sequence, DisposingExecutor executor, final Callback<T> receive) {
+        _deliveryLock.lock();
+        try {
+            final long end = _delivered;
+            if (sequence > end) {
+                throw new IllegalArgumentException("Sequence " + sequence + " not yet delivered: " + end);
+            }
+            if (sequence < end) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        _journal.read(sequence, end, receive);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return "Replay(" + sequence + ", " + end + ") to " + receive;
+                    }
+                });
+            }
+            return _target.subscribe(executor, receive);
+        } finally {
+            _deliveryLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the journal to disk and closes the segment files.
+     */
+    public void dispose() {
+        _deliveryLock.lock();
+        try {
+            synchronized (_appendLock) {
+                _journal.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            _deliveryLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.jetlang.channels;
+
+/**
+ * Callback for long values, avoiding boxing.
+ */
+public interface LongCallback {
+    void onMessage(long value);
+}
@@ -0,0 +1,30 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+/**
+ * Channel for long values. Values are stored in preallocated arrays per subscriber and delivered by a
+ * single event per batch, so publishing does not allocate.
+ */
+public class LongChannel extends PrimitiveChannel {
+
+    public void publish(long value) {
+        publishToAll(value, 0);
+    }
+
+    public Disposable subscribe(DisposingExecutor fiber, final LongCallback receive) {
+        return subscribe(new PrimitiveSubscription(fiber, true, false) {
+            void deliver(PrimitiveQueue batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    receive.onMessage(batch.getLong(i));
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Flushing LongChannel via " + receive;
+            }
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package org.jetlang.channels;
+
+/**
+ * Callback for pairs of a long key and a double value, avoiding boxing.
+ */
+public interface LongDoubleCallback {
+    void onMessage(long key, double value);
+}
@@ -0,0 +1,30 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+/**
+ * Channel for pairs of a long key and a double value, such as an instrument id and a price. Values are stored
+ * in preallocated arrays per subscriber and delivered by a single event per batch, so publishing does not allocate.
+ */
+public class LongDoubleChannel extends PrimitiveChannel {
+
+    public void publish(long key, double value) {
+        publishToAll(key, value);
+    }
+
+    public Disposable subscribe(DisposingExecutor fiber, final LongDoubleCallback receive) {
+        return subscribe(new PrimitiveSubscription(fiber, true, true) {
+            void deliver(PrimitiveQueue batch) {
+                for (int i = 0; i < batch.size(); i++) {
+                    receive.onMessage(batch.getLong(i), batch.getDouble(i));
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Flushing LongDoubleChannel via " + receive;
+            }
+        });
+    }
+}
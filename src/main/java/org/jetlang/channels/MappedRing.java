@@ -0,0 +1,178 @@
+package org.jetlang.channels;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory mapped ring of fixed size slots shared between processes.
+ *
+ * Layout: a header holding magic, capacity, slot size and, on its own cache line, the count of published
+ * messages, followed by the slots. Each slot holds an int length and the encoded message. The count is
+ * written after a store fence and read before a load fence so readers in other processes never see a count
+ * before the slot it covers.
+ *
+ * The JDK has no public fence for memory outside the heap before Java 9, so the fences are looked up once:
+ * {@code VarHandle.releaseFence/acquireFence} when present, otherwise {@code sun.misc.Unsafe.storeFence/loadFence}
+ * found reflectively. If neither is available rings cannot be opened.
+ */
+class MappedRing {
+    static final int MAGIC = 0x4A4C5247;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SLOT_SIZE_OFFSET = 12;
+    private static final int SEQUENCE_OFFSET = 64;
+    static final int HEADER_SIZE = 128;
+
+    private static final MethodHandle STORE_FENCE;
+    private static final MethodHandle LOAD_FENCE;
+
+    static {
+        MethodHandle store = null;
+        MethodHandle load = null;
+        MethodType fence = MethodType.methodType(void.class);
+        try {
+            Class<?> varHandle = Class.forName("java.lang.invoke.VarHandle");
+            store = MethodHandles.publicLookup().findStatic(varHandle, "releaseFence", fence);
+            load = MethodHandles.publicLookup().findStatic(varHandle, "acquireFence", fence);
+        } catch (Exception beforeJava9) {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field f = unsafeClass.getDeclaredField("theUnsafe");
+                f.setAccessible(true);
+                Object unsafe = f.get(null);
+                store = MethodHandles.lookup().findVirtual(unsafeClass, "storeFence", fence).bindTo(unsafe);
+                load = MethodHandles.lookup().findVirtual(unsafeClass, "loadFence", fence).bindTo(unsafe);
+            } catch (Exception unavailable) {
+                store = null;
+                load = null;
+            }
+        }
+        STORE_FENCE = store;
+        LOAD_FENCE = load;
+    }
+
+    final MappedByteBuffer buffer;
+    final int capacity;
+    final int slotSize;
+    private final RandomAccessFile file;
+
+    private MappedRing(RandomAccessFile file, MappedByteBuffer buffer, int capacity, int slotSize) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.slotSize = slotSize;
+    }
+
+    /**
+     * Opens the ring for writing. An existing ring with the same geometry is continued so readers keep their place.
+     */
+    static MappedRing create(File path, int capacity, int slotSize) throws IOException {
+        if (capacity < 1 || slotSize < 8) {
+            throw new IllegalArgumentException("capacity: " + capacity + " slotSize: " + slotSize);
+        }
+        checkFences();
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        long size = HEADER_SIZE + (long) capacity * slotSize;
+        file.setLength(size);
+        MappedByteBuffer buffer = map(file, size);
+        MappedRing ring = new MappedRing(file, buffer, capacity, slotSize);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(CAPACITY_OFFSET) != capacity
+                || buffer.getInt(SLOT_SIZE_OFFSET) != slotSize) {
+            buffer.putInt(0, 0);
+            storeFence();
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putInt(SLOT_SIZE_OFFSET, slotSize);
+            ring.publish(0);
+            storeFence();
+            buffer.putInt(0, MAGIC);
+        }
+        return ring;
+    }
+
+    /**
+     * Opens a ring created by a writer.
+     */
+    static MappedRing open(File path) throws IOException {
+        checkFences();
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        if (file.length() < HEADER_SIZE) {
+            file.close();
+            throw new IOException("Not a ring file: " + path);
+        }
+        MappedByteBuffer header = map(file, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC) {
+            file.close();
+            throw new IOException("Ring not initialized: " + path);
+        }
+        loadFence();
+        int capacity = header.getInt(CAPACITY_OFFSET);
+        int slotSize = header.getInt(SLOT_SIZE_OFFSET);
+        return new MappedRing(file, map(file, HEADER_SIZE + (long) capacity * slotSize), capacity, slotSize);
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile file, long size) throws IOException {
+        MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    /**
+     * The count is 8 byte aligned, so the native order absolute read and write are single accesses.
+     *
+     * @return number of messages published. Loads that follow are not reordered before it.
+     */
+    long sequence() {
+        long sequence = buffer.getLong(SEQUENCE_OFFSET);
+        loadFence();
+        return sequence;
+    }
+
+    /**
+     * Stores before the call are visible to readers before the new count.
+     */
+    void publish(long sequence) {
+        storeFence();
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+    }
+
+    private static void checkFences() {
+        if (STORE_FENCE == null || LOAD_FENCE == null) {
+            throw new UnsupportedOperationException("No memory fences available for mapped rings");
+        }
+    }
+
+    static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    int slotOffset(long sequence) {
+        return HEADER_SIZE + (int) (sequence % capacity) * slotSize;
+    }
+
+    void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Publishes messages to a memory mapped ring file that can be read by {@link MappedRingSubscriber}s in other
+ * processes on the same host. There must be only one publisher per file. Publishing is thread safe within a process.
+ *
+ * The publisher never waits for readers. A reader that falls a full ring behind loses the oldest messages.
+ */
+public class MappedRingPublisher<T> implements Publisher<T>, Disposable {
+
+    private final MappedRing ring;
+    private final MessageCodec<T> codec;
+    private final ByteBuffer view;
+    private long sequence;
+
+    /**
+     * @param file     ring file. Created if it does not exist.
+     * @param capacity number of slots
+     * @param slotSize bytes per slot including a four byte length
+     * @param codec    encodes messages directly into the mapped file
+     */
+    public MappedRingPublisher(File file, int capacity, int slotSize, MessageCodec<T> codec) throws IOException {
+        this.ring = MappedRing.create(file, capacity, slotSize);
+        this.codec = codec;
+        this.view = ring.buffer.duplicate().order(ring.buffer.order());
+        this.sequence = ring.sequence();
+    }
+
+    /**
+     * @throws java.nio.BufferOverflowException if the encoded message does not fit in a slot
+     */
+    public synchronized void publish(T msg) {
+        int offset = ring.slotOffset(sequence);
+        view.limit(offset + ring.slotSize);
+        view.position(offset + 4);
+        codec.encode(msg, view);
+        ring.buffer.putInt(offset, view.position() - offset - 4);
+        ring.publish(++sequence);
+    }
+
+    /**
+     * @return number of messages published to the ring, including those from earlier publishers of the file
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    public void dispose() {
+        ring.close();
+    }
+}
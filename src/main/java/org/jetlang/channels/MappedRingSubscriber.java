@@ -0,0 +1,149 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.core.Scheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads messages written to a memory mapped ring file by a {@link MappedRingPublisher}, possibly in another
+ * process. Each instance has its own cursor, so any number of readers can consume the same ring independently.
+ *
+ * Messages are read by {@link #poll()}, either called directly (e.g. from a spinning thread) or scheduled on a
+ * fiber with {@link #start(Scheduler, long, TimeUnit)}, and are then delivered to local subscribers on their
+ * fibers as with a {@link MemoryChannel}.
+ */
+public class MappedRingSubscriber<T> implements Subscriber<T>, Disposable {
+
+    private final MappedRing ring;
+    private final MessageCodec<T> codec;
+    private final ByteBuffer view;
+    private final MemoryChannel<T> subscribers = new MemoryChannel<T>();
+    private final Object lock = new Object();
+    private long cursor;
+    private long lost;
+    private volatile Disposable polling;
+
+    /**
+     * Opens an existing ring. Reading starts with the next message published.
+     */
+    public MappedRingSubscriber(File file, MessageCodec<T> codec) throws IOException {
+        this.ring = MappedRing.open(file);
+        this.codec = codec;
+        this.view = ring.buffer.duplicate().order(ring.buffer.order());
+        this.cursor = ring.sequence();
+    }
+
+    public Disposable subscribe(DisposingExecutor executor, Callback<T> receive) {
+        return subscribers.subscribe(executor, receive);
+    }
+
+    public Disposable subscribe(Subscribable<T> sub) {
+        return subscribers.subscribe(sub);
+    }
+
+    /**
+     * Schedules polling on the fiber.
+     *
+     * @return Disposable that stops polling. Disposing this subscriber also stops polling.
+     */
+    public Disposable start(Scheduler fiber, long interval, TimeUnit unit) {
+        Runnable poller = new Runnable() {
+            public void run() {
+                poll();
+            }
+
+            @Override
+            public String toString() {
+                return "Polling " + MappedRingSubscriber.this;
+            }
+        };
+        Disposable scheduled = fiber.scheduleWithFixedDelay(poller, interval, interval, unit);
+        polling = scheduled;
+        return scheduled;
+    }
+
+    /**
+     * Reads every message published since the last poll and publishes them to subscribers.
+     *
+     * @return number of messages delivered
+     */
+    public int poll() {
+        synchronized (lock) {
+            long available = ring.sequence();
+            // the writer may already be overwriting the oldest slot
+            long oldest = available - ring.capacity + 1;
+            if (cursor < oldest) {
+                lost += oldest - cursor;
+                cursor = oldest;
+            }
+            int delivered = 0;
+            while (cursor < available) {
+                T msg = read(cursor);
+                // the slot reads must complete before the count is read again
+                MappedRing.loadFence();
+                // the slot is only safe if the writer has not started reusing it
+                if (ring.sequence() - cursor >= ring.capacity) {
+                    lost++;
+                } else {
+                    subscribers.publish(msg);
+                    delivered++;
+                }
+                cursor++;
+            }
+            return delivered;
+        }
+    }
+
+    private T read(long sequence) {
+        int offset = ring.slotOffset(sequence);
+        int length = ring.buffer.getInt(offset);
+        if (length < 0 || length > ring.slotSize - 4) {
+            // torn by the writer. detected by the caller.
+            return null;
+        }
+        view.limit(offset + 4 + length);
+        view.position(offset + 4);
+        try {
+            return codec.decode(view);
+        } catch (RuntimeException e) {
+            MappedRing.loadFence();
+            if (ring.sequence() - sequence >= ring.capacity) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return messages overwritten by the publisher before this reader could read them
+     */
+    public long getLostCount() {
+        synchronized (lock) {
+            return lost;
+        }
+    }
+
+    /**
+     * @return sequence of the next message to read
+     */
+    public long getCursor() {
+        synchronized (lock) {
+            return cursor;
+        }
+    }
+
+    public void dispose() {
+        Disposable scheduled = polling;
+        if (scheduled != null) {
+            scheduled.dispose();
+        }
+        subscribers.clearSubscribers();
+        ring.close();
+    }
+}
@@ -65,6 +65,10 @@ public class MemoryRequestChannel<R, V> implements RequestChannel<R, V> {
         }
 
         public void reply(final V msg) {
+            if (target == InlineExecutor.INSTANCE) {
+                consumeMsg(msg);
+                return;
+            }
             Runnable onMsg = new Runnable() {
                 public void run() {
                     consumeMsg(msg);
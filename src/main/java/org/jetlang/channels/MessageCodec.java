@@ -0,0 +1,22 @@
+package org.jetlang.channels;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts messages to and from bytes for channels that cross process boundaries. Buffers passed to the codec
+ * are views of the transport's memory, so messages are encoded and decoded in place without intermediate copies.
+ * Implementations must use relative get/put operations starting at the buffer's position.
+ */
+public interface MessageCodec<T> {
+
+    /**
+     * Writes the message at the buffer's position. The limit is the maximum size of a message.
+     */
+    void encode(T msg, ByteBuffer target);
+
+    /**
+     * Reads a message from the buffer's position up to its limit. The buffer's contents may be overwritten
+     * once this method returns, so the returned message must not refer to it.
+     */
+    T decode(ByteBuffer source);
+}
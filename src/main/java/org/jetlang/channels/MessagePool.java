@@ -0,0 +1,136 @@
+package org.jetlang.channels;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of reusable messages. Free messages are kept in stripes selected by thread, so publishers acquiring and
+ * fibers releasing rarely contend. Each stripe holds a bounded number of messages; excess messages are left
+ * to the garbage collector.
+ *
+ * With leak detection enabled, the pool records where each outstanding message was acquired so tests can
+ * verify that every message was released. This is expensive and intended for tests.
+ */
+public class MessagePool<T extends PooledMessage> {
+
+    /**
+     * Creates new messages when the pool is empty.
+     */
+    public interface Factory<T> {
+        T create();
+    }
+
+    private final Factory<T> _factory;
+    private final Stripe[] _stripes;
+    private final int _mask;
+    private final boolean _detectLeaks;
+    private final Map<PooledMessage, Throwable> _outstanding = new IdentityHashMap<PooledMessage, Throwable>();
+
+    /**
+     * @param stripes          number of free lists. Rounded up to a power of two.
+     * @param capacityPerStripe maximum free messages per stripe
+     * @param detectLeaks      true to track outstanding messages
+     */
+    public MessagePool(Factory<T> factory, int stripes, int capacityPerStripe, boolean detectLeaks) {
+        int count = 1;
+        while (count < stripes) {
+            count <<= 1;
+        }
+        _factory = factory;
+        _stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            _stripes[i] = new Stripe(capacityPerStripe);
+        }
+        _mask = count - 1;
+        _detectLeaks = detectLeaks;
+    }
+
+    public MessagePool(Factory<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors(), 1024, false);
+    }
+
+    /**
+     * @return a message holding one reference
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        int home = stripe();
+        PooledMessage msg = null;
+        for (int i = 0; i <= _mask && msg == null; i++) {
+            msg = _stripes[(home + i) & _mask].poll();
+        }
+        if (msg == null) {
+            msg = _factory.create();
+        }
+        msg.acquired(this);
+        if (_detectLeaks) {
+            synchronized (_outstanding) {
+                _outstanding.put(msg, new Throwable("Acquired here"));
+            }
+        }
+        return (T) msg;
+    }
+
+    void recycle(PooledMessage msg) {
+        if (_detectLeaks) {
+            synchronized (_outstanding) {
+                _outstanding.remove(msg);
+            }
+        }
+        _stripes[stripe()].offer(msg);
+    }
+
+    private int stripe() {
+        return (int) Thread.currentThread().getId() & _mask;
+    }
+
+    /**
+     * @return number of free messages held by the pool
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : _stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return stack traces of messages acquired and not yet released. Empty unless leak detection is enabled.
+     */
+    public List<Throwable> getLeaks() {
+        synchronized (_outstanding) {
+            return new ArrayList<Throwable>(_outstanding.values());
+        }
+    }
+
+    private static class Stripe {
+        private final PooledMessage[] items;
+        private int size;
+
+        private Stripe(int capacity) {
+            items = new PooledMessage[capacity];
+        }
+
+        private synchronized PooledMessage poll() {
+            if (size == 0) {
+                return null;
+            }
+            PooledMessage msg = items[--size];
+            items[size] = null;
+            return msg;
+        }
+
+        private synchronized void offer(PooledMessage msg) {
+            if (size < items.length) {
+                items[size++] = msg;
+            }
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+    }
+}
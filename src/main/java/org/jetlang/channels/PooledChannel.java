@@ -0,0 +1,108 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+import org.jetlang.core.Filter;
+import org.jetlang.core.MessageReader;
+
+/**
+ * Channel for {@link PooledMessage}s. Each delivery holds a reference that is released when the subscriber's
+ * callback returns on its fiber, and the publisher's reference is released after fan-out, so the message
+ * returns to its pool once every subscriber has finished with it.
+ *
+ * Subscribers must not keep a message after the callback returns unless they {@link PooledMessage#retain()} it.
+ */
+public class PooledChannel<T extends PooledMessage> implements Channel<T> {
+
+    private final MemoryChannel<T> _channel = new MemoryChannel<T>();
+
+    public int subscriberCount() {
+        return _channel.subscriberCount();
+    }
+
+    /**
+     * Delivers the message and releases the publisher's reference.
+     */
+    public void publish(T msg) {
+        try {
+            _channel.publish(msg);
+        } finally {
+            msg.release();
+        }
+    }
+
+    public Disposable subscribe(DisposingExecutor executor, Callback<T> receive) {
+        return subscribe(executor, receive, null);
+    }
+
+    public Disposable subscribe(DisposingExecutor executor, final Callback<T> receive, Filter<T> filter) {
+        Callback<T> releasing = new Callback<T>() {
+            public void onMessage(T message) {
+                try {
+                    receive.onMessage(message);
+                } finally {
+                    message.release();
+                }
+            }
+
+            @Override
+            public String toString() {
+                return receive.toString();
+            }
+        };
+        return _channel.subscribe(new Retaining<T>(new ChannelSubscription<T>(executor, releasing), filter));
+    }
+
+    /**
+     * Delivers messages in batches as a {@link RecyclingBatchSubscriber} without an interval does. The batch is
+     * released when the callback returns.
+     */
+    public Disposable subscribeBatch(DisposingExecutor executor, final Callback<MessageReader<T>> receive) {
+        Callback<MessageReader<T>> releasing = new Callback<MessageReader<T>>() {
+            public void onMessage(MessageReader<T> batch) {
+                try {
+                    receive.onMessage(batch);
+                } finally {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).release();
+                    }
+                }
+            }
+
+            @Override
+            public String toString() {
+                return receive.toString();
+            }
+        };
+        return _channel.subscribe(new Retaining<T>(new RecyclingBatchSubscriber<T>(executor, releasing), null));
+    }
+
+    /**
+     * Adds a reference for each message delivered to the subscription. The subscription must release it.
+     */
+    public Disposable subscribe(Subscribable<T> sub) {
+        return _channel.subscribe(new Retaining<T>(sub, null));
+    }
+
+    private static class Retaining<T extends PooledMessage> implements Subscribable<T> {
+        private final Subscribable<T> target;
+        private final Filter<T> filter;
+
+        private Retaining(Subscribable<T> target, Filter<T> filter) {
+            this.target = target;
+            this.filter = filter;
+        }
+
+        public DisposingExecutor getQueue() {
+            return target.getQueue();
+        }
+
+        public void onMessage(T message) {
+            if (filter == null || filter.passes(message)) {
+                message.retain();
+                target.onMessage(message);
+            }
+        }
+    }
+}
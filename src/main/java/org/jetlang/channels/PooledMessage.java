@@ -0,0 +1,56 @@
+package org.jetlang.channels;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Reference counted message that returns to its {@link MessagePool} when the last reference is released.
+ * A message is acquired with one reference, owned by the publisher. {@link PooledChannel} adds a reference per
+ * delivery and releases the publisher's reference after fan-out.
+ */
+public abstract class PooledMessage {
+
+    private static final AtomicIntegerFieldUpdater<PooledMessage> REFS =
+            AtomicIntegerFieldUpdater.newUpdater(PooledMessage.class, "_refs");
+
+    private volatile int _refs;
+    private MessagePool<?> _pool;
+
+    void acquired(MessagePool<?> pool) {
+        _pool = pool;
+        _refs = 1;
+    }
+
+    public PooledMessage retain() {
+        int refs;
+        do {
+            refs = _refs;
+            if (refs <= 0) {
+                throw new IllegalStateException("Retain after release: " + this);
+            }
+        } while (!REFS.compareAndSet(this, refs, refs + 1));
+        return this;
+    }
+
+    /**
+     * Drops a reference. The message is reset and returned to the pool when none remain.
+     */
+    public void release() {
+        int refs = REFS.decrementAndGet(this);
+        if (refs == 0) {
+            reset();
+            _pool.recycle(this);
+        } else if (refs < 0) {
+            throw new IllegalStateException("Released too many times: " + this);
+        }
+    }
+
+    public int refCount() {
+        return _refs;
+    }
+
+    /**
+     * Clears state before the message is reused. Called on the thread releasing the last reference.
+     */
+    protected void reset() {
+    }
+}
@@ -0,0 +1,469 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request/reply channel for high rate, single reply calls that does not allocate per request.
+ *
+ * Request objects are taken from a fixed size pool. The same object is queued on the responder's fiber
+ * to deliver the request and then on the requester's fiber to deliver the reply, so no closures are
+ * created. Each request is identified by a correlation id that combines the pool slot and a generation
+ * stamp. Replies and cancels for an id whose slot has since been recycled are ignored.
+ *
+ * The channel has at most one responder. Each request accepts one reply; further replies are ignored.
+ * A responder may call {@link Request#reply} only until its callback returns. To reply later, keep the
+ * id from {@link #getCorrelationId(Request)} and call {@link #reply(long, Object)}.
+ *
+ * A request queued on a fiber that is disposed before running it is dropped and its slot is reclaimed. The
+ * dropped object is left to the dead queue and a new one takes its place in the pool, so that is the only
+ * case that allocates.
+ */
+public class PooledRequestChannel<R, V> {
+
+    private static final int FREE = 0;
+    private static final int PENDING_REQUEST = 1;
+    // the responder callback is running and may still read the request
+    private static final int IN_CALLBACK = 2;
+    private static final int AWAITING_REPLY = 3;
+    private static final int PENDING_REPLY = 4;
+    private static final int CANCELLED = 5;
+    // a reply arriving during the callback is stored, then queued once the callback returns
+    private static final int REPLYING = 6;
+    private static final int REPLIED = 7;
+    // queued on a disposed fiber. the slot now belongs to a replacement object.
+    private static final int DROPPED = 8;
+    // cancelled while queued on a fiber. released when it runs.
+    private static final int CANCELLED_QUEUED = 9;
+
+    private static final int PHASE_BITS = 4;
+    private static final long PHASE_MASK = (1 << PHASE_BITS) - 1;
+
+    private final PooledRequest<R, V>[] slots;
+    private final int[] freeSlots;
+    private int freeCount;
+    private final Object poolLock = new Object();
+    // requester fibers with a disposal hook registered. guarded by poolLock.
+    private final Map<DisposingExecutor, Disposable> requesters = new IdentityHashMap<DisposingExecutor, Disposable>();
+
+    private volatile DisposingExecutor responderFiber;
+    private volatile Callback<Request<R, V>> responder;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PooledRequestChannel(int maxOutstandingRequests) {
+        slots = new PooledRequest[maxOutstandingRequests];
+        freeSlots = new int[maxOutstandingRequests];
+        for (int i = 0; i < maxOutstandingRequests; i++) {
+            slots[i] = new PooledRequest<R, V>(this, i);
+            freeSlots[i] = maxOutstandingRequests - 1 - i;
+        }
+        freeCount = maxOutstandingRequests;
+    }
+
+    /**
+     * Registers the single responder. Requests are delivered on the responder fiber.
+     *
+     * @throws IllegalStateException if a responder is already subscribed
+     */
+    public Disposable subscribe(final DisposingExecutor fiber, final Callback<Request<R, V>> onRequest) {
+        synchronized (poolLock) {
+            if (responder != null) {
+                throw new IllegalStateException("Responder already subscribed");
+            }
+            responderFiber = fiber;
+            responder = onRequest;
+        }
+        Disposable unSub = new Disposable() {
+            public void dispose() {
+                synchronized (poolLock) {
+                    if (responder == onRequest) {
+                        responder = null;
+                        responderFiber = null;
+                    }
+                }
+                fiber.remove(this);
+                for (PooledRequest<R, V> req : snapshot()) {
+                    req.responderGone(fiber, req.stamp.get() >>> PHASE_BITS);
+                }
+            }
+        };
+        fiber.add(unSub);
+        return unSub;
+    }
+
+    /**
+     * Sends a request. The reply is delivered to the handler on the target fiber.
+     *
+     * @return correlation id for the request or 0 if no responder is subscribed
+     * @throws IllegalStateException if all pooled requests are outstanding
+     */
+    public long send(DisposingExecutor target, R request, ReplyHandler<V> onReply) {
+        DisposingExecutor fiber = responderFiber;
+        if (fiber == null) {
+            return 0;
+        }
+        watch(target);
+        PooledRequest<R, V> req = acquire();
+        long id = req.start(target, request, onReply, fiber);
+        fiber.execute(req);
+        if (responderFiber != fiber) {
+            // unsubscribed while sending. the responder may never run the request.
+            req.responderGone(fiber, id >>> 32);
+        }
+        return id;
+    }
+
+    /**
+     * Registers a hook on the requester fiber that reclaims its requests when it is disposed.
+     */
+    private void watch(final DisposingExecutor requester) {
+        Disposable hook;
+        synchronized (poolLock) {
+            if (requesters.containsKey(requester)) {
+                return;
+            }
+            hook = new Disposable() {
+                public void dispose() {
+                    synchronized (poolLock) {
+                        requesters.remove(requester);
+                    }
+                    requester.remove(this);
+                    for (PooledRequest<R, V> req : snapshot()) {
+                        req.requesterGone(requester);
+                    }
+                }
+            };
+            requesters.put(requester, hook);
+        }
+        // outside the pool lock. the fiber holds its own lock while disposing.
+        requester.add(hook);
+    }
+
+    /**
+     * Replies to a request by correlation id.
+     *
+     * @return false if the request was cancelled, already replied to, or the id is stale
+     */
+    public boolean reply(long correlationId, V reply) {
+        int slot = (int) correlationId;
+        if (slot < 0 || slot >= slots.length) {
+            return false;
+        }
+        return slots[slot].reply(correlationId >>> 32, reply);
+    }
+
+    /**
+     * Cancels an outstanding request. The reply handler will not be called for the request.
+     *
+     * @return true if the request was outstanding and is now cancelled
+     */
+    public boolean cancel(long correlationId) {
+        int slot = (int) correlationId;
+        if (slot < 0 || slot >= slots.length) {
+            return false;
+        }
+        return slots[slot].cancel(correlationId >>> 32);
+    }
+
+    /**
+     * @return correlation id of a request delivered by this channel
+     */
+    public long getCorrelationId(Request<R, V> request) {
+        return ((PooledRequest<R, V>) request).correlationId;
+    }
+
+    /**
+     * @return number of requests available for sending
+     */
+    public int available() {
+        synchronized (poolLock) {
+            return freeCount;
+        }
+    }
+
+    private PooledRequest<R, V> acquire() {
+        synchronized (poolLock) {
+            if (freeCount == 0) {
+                throw new IllegalStateException("All " + slots.length + " requests are outstanding");
+            }
+            return slots[freeSlots[--freeCount]];
+        }
+    }
+
+    private void release(PooledRequest<R, V> req) {
+        synchronized (poolLock) {
+            freeSlots[freeCount++] = req.index;
+        }
+    }
+
+    private void replace(PooledRequest<R, V> dropped, long generation) {
+        synchronized (poolLock) {
+            slots[dropped.index] = new PooledRequest<R, V>(this, dropped.index, generation);
+            freeSlots[freeCount++] = dropped.index;
+        }
+    }
+
+    private PooledRequest<R, V>[] snapshot() {
+        synchronized (poolLock) {
+            return slots.clone();
+        }
+    }
+
+    private static final class PooledRequest<R, V> implements Request<R, V>, Session, Runnable {
+        private final PooledRequestChannel<R, V> channel;
+        private final int index;
+        // generation << PHASE_BITS | phase
+        private final AtomicLong stamp = new AtomicLong();
+
+        private long correlationId;
+        private DisposingExecutor target;
+        private R request;
+        private ReplyHandler<V> onReply;
+        private V reply;
+        private DisposingExecutor responderFiber;
+        // generation being delivered to the responder callback. only accessed on the responder fiber.
+        private long delivering = -1;
+
+        private PooledRequest(PooledRequestChannel<R, V> channel, int index) {
+            this(channel, index, 0);
+        }
+
+        private PooledRequest(PooledRequestChannel<R, V> channel, int index, long generation) {
+            this.channel = channel;
+            this.index = index;
+            stamp.set(generation << PHASE_BITS | FREE);
+        }
+
+        private long start(DisposingExecutor target, R request, ReplyHandler<V> onReply,
+                           DisposingExecutor responderFiber) {
+            long generation = (stamp.get() >>> PHASE_BITS) + 1;
+            this.target = target;
+            this.request = request;
+            this.onReply = onReply;
+            this.responderFiber = responderFiber;
+            this.correlationId = (generation << 32) | index;
+            stamp.set(generation << PHASE_BITS | PENDING_REQUEST);
+            return correlationId;
+        }
+
+        public Session getSession() {
+            return this;
+        }
+
+        public R getRequest() {
+            return request;
+        }
+
+        public void reply(V msg) {
+            if (delivering >= 0) {
+                reply(delivering, msg);
+            }
+        }
+
+        private boolean reply(long generation, V msg) {
+            long base = generation << PHASE_BITS;
+            while (true) {
+                long current = stamp.get();
+                if (current == (base | AWAITING_REPLY)) {
+                    if (stamp.compareAndSet(current, base | PENDING_REPLY)) {
+                        reply = msg;
+                        target.execute(this);
+                        return true;
+                    }
+                } else if (current == (base | IN_CALLBACK)) {
+                    if (stamp.compareAndSet(current, base | REPLYING)) {
+                        reply = msg;
+                        stamp.set(base | REPLIED);
+                        return true;
+                    }
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        private boolean cancel(long generation) {
+            while (true) {
+                long current = stamp.get();
+                if (current >>> PHASE_BITS != generation) {
+                    return false;
+                }
+                int phase = (int) (current & PHASE_MASK);
+                long base = generation << PHASE_BITS;
+                switch (phase) {
+                    case PENDING_REQUEST:
+                    case PENDING_REPLY:
+                        if (stamp.compareAndSet(current, base | CANCELLED_QUEUED)) {
+                            return true;
+                        }
+                        break;
+                    case IN_CALLBACK:
+                    case REPLIED:
+                        // the responder still holds this object. released once the callback returns.
+                        if (stamp.compareAndSet(current, base | CANCELLED)) {
+                            return true;
+                        }
+                        break;
+                    case REPLYING:
+                        Thread.yield();
+                        break;
+                    case AWAITING_REPLY:
+                        if (stamp.compareAndSet(current, base | FREE)) {
+                            clear();
+                            channel.release(this);
+                            return true;
+                        }
+                        break;
+                    default:
+                        return false;
+                }
+            }
+        }
+
+        /**
+         * Called when a requester fiber is disposed. Cancels this request if it was sent from that fiber.
+         */
+        private void requesterGone(DisposingExecutor fiber) {
+            while (true) {
+                long current = stamp.get();
+                if (target != fiber) {
+                    return;
+                }
+                switch ((int) (current & PHASE_MASK)) {
+                    case PENDING_REQUEST:
+                    case PENDING_REPLY:
+                    case CANCELLED_QUEUED:
+                        // may be queued on a fiber that will never run it
+                        if (drop(current)) {
+                            return;
+                        }
+                        break;
+                    case IN_CALLBACK:
+                    case REPLYING:
+                    case REPLIED:
+                    case AWAITING_REPLY:
+                        if (cancel(current >>> PHASE_BITS)) {
+                            return;
+                        }
+                        break;
+                    default:
+                        return;
+                }
+            }
+        }
+
+        /**
+         * Called when a responder is unsubscribed. Drops this request if it may still be queued on that fiber.
+         */
+        private void responderGone(DisposingExecutor fiber, long generation) {
+            long current = stamp.get();
+            long base = generation << PHASE_BITS;
+            if ((current == (base | PENDING_REQUEST) || current == (base | CANCELLED_QUEUED))
+                    && responderFiber == fiber) {
+                drop(current);
+            }
+        }
+
+        /**
+         * Abandons this object to the queue it is stuck in and returns its slot to the pool with a new object.
+         */
+        private boolean drop(long current) {
+            if (stamp.compareAndSet(current, (current & ~PHASE_MASK) | DROPPED)) {
+                clear();
+                channel.replace(this, current >>> PHASE_BITS);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Delivers the request on the responder fiber or the reply on the requester fiber depending upon phase.
+         */
+        public void run() {
+            long current = stamp.get();
+            long base = current & ~PHASE_MASK;
+            int phase = (int) (current & PHASE_MASK);
+            if (phase == PENDING_REQUEST) {
+                Callback<Request<R, V>> cb = channel.responder;
+                if (cb == null) {
+                    if (stamp.compareAndSet(current, base | FREE)) {
+                        clear();
+                        channel.release(this);
+                        return;
+                    }
+                } else if (stamp.compareAndSet(current, base | IN_CALLBACK)) {
+                    delivering = current >>> PHASE_BITS;
+                    try {
+                        cb.onMessage(this);
+                    } finally {
+                        delivering = -1;
+                        afterCallback(base);
+                    }
+                    return;
+                }
+            } else if (phase == PENDING_REPLY) {
+                ReplyHandler<V> handler = onReply;
+                V msg = reply;
+                long id = correlationId;
+                if (stamp.compareAndSet(current, base | FREE)) {
+                    clear();
+                    channel.release(this);
+                    handler.onReply(id, msg);
+                    return;
+                }
+            }
+            if (stamp.compareAndSet(base | CANCELLED_QUEUED, base | FREE)) {
+                clear();
+                channel.release(this);
+            }
+        }
+
+        private void afterCallback(long base) {
+            while (true) {
+                long current = stamp.get();
+                switch ((int) (current & PHASE_MASK)) {
+                    case IN_CALLBACK:
+                        if (stamp.compareAndSet(current, base | AWAITING_REPLY)) {
+                            return;
+                        }
+                        break;
+                    case REPLYING:
+                        Thread.yield();
+                        break;
+                    case REPLIED:
+                        if (stamp.compareAndSet(current, base | PENDING_REPLY)) {
+                            target.execute(this);
+                            return;
+                        }
+                        break;
+                    case CANCELLED:
+                        if (stamp.compareAndSet(current, base | FREE)) {
+                            clear();
+                            channel.release(this);
+                        }
+                        return;
+                    default:
+                        return;
+                }
+            }
+        }
+
+        private void clear() {
+            target = null;
+            request = null;
+            onReply = null;
+            reply = null;
+            responderFiber = null;
+        }
+
+        @Override
+        public String toString() {
+            return "PooledRequest(" + correlationId + ")";
+        }
+    }
+}
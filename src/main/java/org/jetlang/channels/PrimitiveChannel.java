@@ -0,0 +1,77 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Subscriber list shared by the primitive channels. Publishing copies the value into each subscriber's queue,
+ * so nothing is boxed or allocated per message.
+ */
+abstract class PrimitiveChannel {
+
+    private static final PrimitiveSubscription[] EMPTY = new PrimitiveSubscription[0];
+
+    private volatile PrimitiveSubscription[] _subscribers = EMPTY;
+    private final Lock _lock = new ReentrantLock();
+
+    public int subscriberCount() {
+        return _subscribers.length;
+    }
+
+    void publishToAll(long l, double d) {
+        for (PrimitiveSubscription sub : _subscribers) {
+            sub.onMessageOnProducerThread(l, d);
+        }
+    }
+
+    Disposable subscribe(final PrimitiveSubscription sub) {
+        final DisposingExecutor queue = sub.getQueue();
+        Disposable unSub = new Disposable() {
+            public void dispose() {
+                remove(sub);
+                queue.remove(this);
+            }
+        };
+        queue.add(unSub);
+        _lock.lock();
+        try {
+            PrimitiveSubscription[] resized = new PrimitiveSubscription[_subscribers.length + 1];
+            System.arraycopy(_subscribers, 0, resized, 0, _subscribers.length);
+            resized[_subscribers.length] = sub;
+            _subscribers = resized;
+        } finally {
+            _lock.unlock();
+        }
+        return unSub;
+    }
+
+    private void remove(PrimitiveSubscription sub) {
+        _lock.lock();
+        try {
+            PrimitiveSubscription[] subs = _subscribers;
+            for (int i = 0; i < subs.length; i++) {
+                if (subs[i] == sub) {
+                    PrimitiveSubscription[] resized = new PrimitiveSubscription[subs.length - 1];
+                    System.arraycopy(subs, 0, resized, 0, i);
+                    System.arraycopy(subs, i + 1, resized, i, resized.length - i);
+                    _subscribers = resized;
+                    return;
+                }
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void clearSubscribers() {
+        _lock.lock();
+        try {
+            _subscribers = EMPTY;
+        } finally {
+            _lock.unlock();
+        }
+    }
+}
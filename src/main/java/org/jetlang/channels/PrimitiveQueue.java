@@ -0,0 +1,57 @@
+package org.jetlang.channels;
+
+/**
+ * Growable arrays of primitive values. Only the arrays a channel uses are allocated. Once grown to the
+ * largest batch, adding values does not allocate.
+ */
+class PrimitiveQueue {
+
+    private long[] longs;
+    private double[] doubles;
+    private int size;
+
+    PrimitiveQueue(boolean useLongs, boolean useDoubles, int capacity) {
+        longs = useLongs ? new long[capacity] : null;
+        doubles = useDoubles ? new double[capacity] : null;
+    }
+
+    void add(long l, double d) {
+        if (longs != null) {
+            if (size == longs.length) {
+                long[] grown = new long[size * 2];
+                System.arraycopy(longs, 0, grown, 0, size);
+                longs = grown;
+            }
+            longs[size] = l;
+        }
+        if (doubles != null) {
+            if (size == doubles.length) {
+                double[] grown = new double[size * 2];
+                System.arraycopy(doubles, 0, grown, 0, size);
+                doubles = grown;
+            }
+            doubles[size] = d;
+        }
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long getLong(int index) {
+        return longs[index];
+    }
+
+    double getDouble(int index) {
+        return doubles[index];
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,60 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues primitive values for a subscriber in preallocated arrays. The first value of a batch queues this
+ * subscription on the fiber and the whole batch is delivered by that one event.
+ */
+abstract class PrimitiveSubscription implements Runnable {
+
+    private final Lock _lock = new ReentrantLock();
+    private final DisposingExecutor _fiber;
+    private PrimitiveQueue _pending;
+    private PrimitiveQueue _active;
+
+    PrimitiveSubscription(DisposingExecutor fiber, boolean longs, boolean doubles) {
+        _fiber = fiber;
+        _pending = new PrimitiveQueue(longs, doubles, 64);
+        _active = new PrimitiveQueue(longs, doubles, 64);
+    }
+
+    DisposingExecutor getQueue() {
+        return _fiber;
+    }
+
+    void onMessageOnProducerThread(long l, double d) {
+        boolean first;
+        _lock.lock();
+        try {
+            first = _pending.isEmpty();
+            _pending.add(l, d);
+        } finally {
+            _lock.unlock();
+        }
+        if (first) {
+            _fiber.execute(this);
+        }
+    }
+
+    public void run() {
+        _lock.lock();
+        try {
+            PrimitiveQueue nowPending = _active;
+            _active = _pending;
+            _pending = nowPending;
+        } finally {
+            _lock.unlock();
+        }
+        try {
+            deliver(_active);
+        } finally {
+            _active.clear();
+        }
+    }
+
+    abstract void deliver(PrimitiveQueue batch);
+}
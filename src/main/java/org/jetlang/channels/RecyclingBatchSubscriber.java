@@ -1,9 +1,11 @@
 package org.jetlang.channels;
 
 import org.jetlang.core.Callback;
+import org.jetlang.core.DisposingExecutor;
 import org.jetlang.core.Filter;
 import org.jetlang.core.MessageBuffer;
 import org.jetlang.core.MessageReader;
+import org.jetlang.core.Scheduler;
 import org.jetlang.fibers.Fiber;
 
 import java.util.concurrent.TimeUnit;
@@ -12,10 +14,16 @@ import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Batches events for the consuming thread.
+ *
+ * With an interval of zero the first message of a batch queues the flush on the fiber immediately and later
+ * messages join the pending batch, so every message that arrives before the fiber reaches the flush is delivered
+ * in one {@link MessageReader} call. Under load the batches grow with the backlog; when idle each message is
+ * delivered immediately.
  */
 public class RecyclingBatchSubscriber<T> extends BaseSubscription<T> {
     private final Lock _lock = new ReentrantLock();
-    private final Fiber _queue;
+    private final DisposingExecutor _queue;
+    private final Scheduler _scheduler;
     private final Callback<MessageReader<T>> _receive;
     private final int _interval;
     private final TimeUnit _timeUnit;
@@ -26,8 +34,31 @@ public class RecyclingBatchSubscriber<T> extends BaseSubscription<T> {
     public RecyclingBatchSubscriber(Fiber queue, Callback<MessageReader<T>> receive,
                                     Filter<T> filter,
                                     int interval, TimeUnit timeUnit) {
+        this(queue, queue, receive, filter, interval, timeUnit);
+    }
+
+    public RecyclingBatchSubscriber(Fiber queue, Callback<MessageReader<T>> receive,
+                                    int interval, TimeUnit timeUnit) {
+        this(queue, receive, null, interval, timeUnit);
+    }
+
+    /**
+     * Flushes without a delay. Only needs an executor since nothing is scheduled.
+     */
+    public RecyclingBatchSubscriber(DisposingExecutor queue, Callback<MessageReader<T>> receive, Filter<T> filter) {
+        this(queue, null, receive, filter, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public RecyclingBatchSubscriber(DisposingExecutor queue, Callback<MessageReader<T>> receive) {
+        this(queue, receive, null);
+    }
+
+    private RecyclingBatchSubscriber(DisposingExecutor queue, Scheduler scheduler,
+                                     Callback<MessageReader<T>> receive, Filter<T> filter,
+                                     int interval, TimeUnit timeUnit) {
         super(queue, filter);
         _queue = queue;
+        _scheduler = scheduler;
         _receive = receive;
         _interval = interval;
         _timeUnit = timeUnit;
@@ -43,11 +74,6 @@ public class RecyclingBatchSubscriber<T> extends BaseSubscription<T> {
         };
     }
 
-    public RecyclingBatchSubscriber(Fiber queue, Callback<MessageReader<T>> receive,
-                                    int interval, TimeUnit timeUnit) {
-        this(queue, receive, null, interval, timeUnit);
-    }
-
     /**
      * Receives message and batches as needed.
      */
@@ -56,7 +82,11 @@ public class RecyclingBatchSubscriber<T> extends BaseSubscription<T> {
         _lock.lock();
         try {
             if (_pending.isEmpty()) {
-                _queue.schedule(_flushRunnable, _interval, _timeUnit);
+                if (_interval > 0) {
+                    _scheduler.schedule(_flushRunnable, _interval, _timeUnit);
+                } else {
+                    _queue.execute(_flushRunnable);
+                }
             }
             _pending.add(msg);
         } finally {
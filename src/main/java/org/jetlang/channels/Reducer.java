@@ -0,0 +1,8 @@
+package org.jetlang.channels;
+
+/**
+ * Folds a reply into an accumulated result.
+ */
+public interface Reducer<A, V> {
+    A reduce(A accumulated, V reply);
+}
@@ -0,0 +1,10 @@
+package org.jetlang.channels;
+
+/**
+ * Receives replies identified by the correlation id returned when the request was sent. A single handler
+ * can serve every outstanding request, so no per-request callback object is needed.
+ */
+public interface ReplyHandler<V> {
+
+    void onReply(long correlationId, V reply);
+}
@@ -0,0 +1,194 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.Filter;
+import org.jetlang.core.TimeoutWheel;
+import org.jetlang.fibers.Fiber;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a request to many responders and folds the replies into a single result as they arrive on the target
+ * fiber. Replies are not buffered. The result is delivered as soon as it is decided, either by reaching the
+ * quorum or passing the completion filter. All outstanding request sessions are then disposed so responders
+ * can stop working on the request.
+ *
+ * The initial value is shared by every publish, so it should be immutable.
+ */
+public class ScatterGather<R, V, A> {
+    private final Fiber target;
+    private final TimeoutWheel timeouts;
+    private final A initial;
+    private final Reducer<A, V> reducer;
+    private int quorum;
+    private Filter<A> isComplete;
+    private Callback<V> onReply;
+    private Callback<A> onTimeout;
+    private long time;
+    private TimeUnit unit;
+
+    public ScatterGather(Fiber target, A initial, Reducer<A, V> reducer) {
+        this.target = target;
+        this.timeouts = null;
+        this.initial = initial;
+        this.reducer = reducer;
+    }
+
+    /**
+     * @param timeouts wheel owned by the target fiber used to track timeouts
+     */
+    public ScatterGather(Fiber target, TimeoutWheel timeouts, A initial, Reducer<A, V> reducer) {
+        if (timeouts.getFiber() != target) {
+            throw new IllegalArgumentException("TimeoutWheel must run on the target fiber");
+        }
+        this.target = target;
+        this.timeouts = timeouts;
+        this.initial = initial;
+        this.reducer = reducer;
+    }
+
+    /**
+     * @param replies number of replies that decides the result or 0 if using a filter or timeout.
+     * @return chained request object
+     */
+    public ScatterGather<R, V, A> setQuorum(int replies) {
+        this.quorum = replies;
+        return this;
+    }
+
+    /**
+     * @param isComplete checked against the accumulated result after each reply
+     * @return chained request object
+     */
+    public ScatterGather<R, V, A> setCompletion(Filter<A> isComplete) {
+        this.isComplete = isComplete;
+        return this;
+    }
+
+    /**
+     * @param onReply receives each reply on the target fiber before it is reduced
+     * @return chained request object
+     */
+    public ScatterGather<R, V, A> setOnReply(Callback<V> onReply) {
+        this.onReply = onReply;
+        return this;
+    }
+
+    /**
+     * @param onTimeout receives the partial result if the result is not decided in time
+     * @return chained request object
+     */
+    public ScatterGather<R, V, A> setTimeout(Callback<A> onTimeout, long time, TimeUnit unit) {
+        this.onTimeout = onTimeout;
+        this.time = time;
+        this.unit = unit;
+        return this;
+    }
+
+    public Disposable publish(RequestChannel<R, V> channel, R req, Callback<A> onComplete) {
+        return publish(Collections.singletonList(channel), req, onComplete);
+    }
+
+    /**
+     * Sends the request to every channel. Replies from all channels count toward the quorum.
+     */
+    public Disposable publish(Collection<? extends RequestChannel<R, V>> channels, R req, Callback<A> onComplete) {
+        GatherCallback<R, V, A> callback = new GatherCallback<R, V, A>(initial, reducer, quorum, isComplete,
+                onReply, onComplete, onTimeout);
+        callback.send(channels, req, target, timeouts, time, unit);
+        return callback;
+    }
+}
+
+class GatherCallback<R, V, A> implements Callback<V>, Runnable, Disposable {
+    private final Object lock = new Object();
+    private final Reducer<A, V> reducer;
+    private final int quorum;
+    private final Filter<A> isComplete;
+    private final Callback<V> onReply;
+    private final Callback<A> onComplete;
+    private final Callback<A> onTimeout;
+    private A accumulated;
+    private int count;
+    private volatile boolean done;
+    private Disposable[] sessions;
+    private Disposable timer;
+
+    public GatherCallback(A initial, Reducer<A, V> reducer, int quorum, Filter<A> isComplete,
+                          Callback<V> onReply, Callback<A> onComplete, Callback<A> onTimeout) {
+        this.accumulated = initial;
+        this.reducer = reducer;
+        this.quorum = quorum;
+        this.isComplete = isComplete;
+        this.onReply = onReply;
+        this.onComplete = onComplete;
+        this.onTimeout = onTimeout;
+    }
+
+    public void onMessage(V message) {
+        if (done) {
+            return;
+        }
+        count++;
+        if (onReply != null) {
+            onReply.onMessage(message);
+        }
+        accumulated = reducer.reduce(accumulated, message);
+        if ((quorum > 0 && count >= quorum) || (isComplete != null && isComplete.passes(accumulated))) {
+            dispose();
+            onComplete.onMessage(accumulated);
+        }
+    }
+
+    public void run() {
+        if (done) {
+            return;
+        }
+        dispose();
+        onTimeout.onMessage(accumulated);
+    }
+
+    public void dispose() {
+        done = true;
+        synchronized (lock) {
+            if (sessions != null) {
+                for (Disposable session : sessions) {
+                    if (session != null) {
+                        session.dispose();
+                    }
+                }
+                sessions = null;
+            }
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+    }
+
+    public void send(Collection<? extends RequestChannel<R, V>> channels, R req, Fiber target,
+                     TimeoutWheel timeouts, long time, TimeUnit unit) {
+        // replies may be received and complete the request before every channel has been sent to.
+        // The lock prevents the receiving thread from disposing before the sessions are set.
+        synchronized (lock) {
+            Disposable[] all = new Disposable[channels.size()];
+            sessions = all;
+            int i = 0;
+            for (RequestChannel<R, V> channel : channels) {
+                Disposable session = channel.publish(target, req, this);
+                if (done) {
+                    // completed synchronously while sending
+                    session.dispose();
+                } else {
+                    all[i++] = session;
+                }
+            }
+            if (onTimeout != null && !done) {
+                timer = timeouts != null ? timeouts.schedule(this, time, unit) : target.schedule(this, time, unit);
+            }
+        }
+    }
+}
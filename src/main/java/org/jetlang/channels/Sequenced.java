@@ -0,0 +1,28 @@
+package org.jetlang.channels;
+
+/**
+ * Message stamped with its position in a channel's stream.
+ */
+public class Sequenced<T> {
+
+    private final long _sequence;
+    private final T _message;
+
+    public Sequenced(long sequence, T message) {
+        _sequence = sequence;
+        _message = message;
+    }
+
+    public long getSequence() {
+        return _sequence;
+    }
+
+    public T getMessage() {
+        return _message;
+    }
+
+    @Override
+    public String toString() {
+        return _sequence + ":" + _message;
+    }
+}
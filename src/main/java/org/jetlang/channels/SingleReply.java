@@ -2,6 +2,7 @@ package org.jetlang.channels;
 
 import org.jetlang.core.Callback;
 import org.jetlang.core.Disposable;
+import org.jetlang.core.TimeoutWheel;
 import org.jetlang.fibers.Fiber;
 
 import java.util.List;
@@ -25,7 +26,18 @@ class SingleReply {
     public static <R, V> Disposable publish(Fiber fiber,
                                             RequestChannel<R, V> channel, R request, final Callback<V> reply,
                                             long timeout, TimeUnit unit, final Runnable onTimeout) {
-        AsyncRequest<R, V> async = new AsyncRequest<R, V>(fiber);
+        return publish(new AsyncRequest<R, V>(fiber), channel, request, reply, timeout, unit, onTimeout);
+    }
+
+    public static <R, V> Disposable publish(Fiber fiber, TimeoutWheel timeouts,
+                                            RequestChannel<R, V> channel, R request, final Callback<V> reply,
+                                            long timeout, TimeUnit unit, final Runnable onTimeout) {
+        return publish(new AsyncRequest<R, V>(fiber, timeouts), channel, request, reply, timeout, unit, onTimeout);
+    }
+
+    private static <R, V> Disposable publish(AsyncRequest<R, V> async,
+                                             RequestChannel<R, V> channel, R request, final Callback<V> reply,
+                                             long timeout, TimeUnit unit, final Runnable onTimeout) {
         async.setResponseCount(1);
         final Callback<List<V>> onListTimeout = new Callback<List<V>>() {
             public void onMessage(List<V> message) {
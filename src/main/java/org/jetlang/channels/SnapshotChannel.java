@@ -0,0 +1,147 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Channel that stamps each published message with a sequence and retains state for late subscribers, either
+ * the latest message per key or a bounded history of recent messages.
+ *
+ * {@link #subscribeWithSnapshot} delivers the retained state followed by every later message, in sequence and
+ * without duplicates, on the subscriber's fiber. Subscribers no longer need to buffer deltas while requesting
+ * a snapshot.
+ */
+public class SnapshotChannel<T> implements Publisher<T>, Subscriber<Sequenced<T>> {
+
+    private final Object _lock = new Object();
+    private final MemoryChannel<Sequenced<T>> _deltas = new MemoryChannel<Sequenced<T>>();
+    private final Converter<T, ?> _keyResolver;
+    private final LinkedHashMap<Object, Sequenced<T>> _latest;
+    private final ArrayDeque<Sequenced<T>> _history;
+    private final int _historySize;
+    private long _sequence;
+
+    private SnapshotChannel(Converter<T, ?> keyResolver, int historySize) {
+        _keyResolver = keyResolver;
+        _historySize = historySize;
+        _latest = keyResolver != null ? new LinkedHashMap<Object, Sequenced<T>>() : null;
+        _history = keyResolver == null ? new ArrayDeque<Sequenced<T>>(historySize) : null;
+    }
+
+    /**
+     * Retains the latest message for each key.
+     */
+    public static <K, T> SnapshotChannel<T> latestByKey(Converter<T, K> keyResolver) {
+        return new SnapshotChannel<T>(keyResolver, 0);
+    }
+
+    /**
+     * Retains the most recent messages.
+     */
+    public static <T> SnapshotChannel<T> recentHistory(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        return new SnapshotChannel<T>(null, size);
+    }
+
+    public void publish(T msg) {
+        synchronized (_lock) {
+            Sequenced<T> sequenced = new Sequenced<T>(++_sequence, msg);
+            if (_latest != null) {
+                Object key = _keyResolver.convert(msg);
+                // keep the map in sequence order
+                _latest.remove(key);
+                _latest.put(key, sequenced);
+            } else {
+                if (_history.size() == _historySize) {
+                    _history.removeFirst();
+                }
+                _history.addLast(sequenced);
+            }
+            _deltas.publish(sequenced);
+        }
+    }
+
+    /**
+     * @return sequence of the last message published, 0 if none
+     */
+    public long getSequence() {
+        synchronized (_lock) {
+            return _sequence;
+        }
+    }
+
+    /**
+     * Subscribes to messages published from now on.
+     */
+    public Disposable subscribe(DisposingExecutor executor, Callback<Sequenced<T>> receive) {
+        return _deltas.subscribe(executor, receive);
+    }
+
+    public Disposable subscribe(Subscribable<Sequenced<T>> sub) {
+        return _deltas.subscribe(sub);
+    }
+
+    /**
+     * Atomically captures the retained state and subscribes to later messages. The snapshot is delivered on the
+     * executor before any delta. The first delta follows the snapshot's sequence.
+     */
+    public Disposable subscribeWithSnapshot(DisposingExecutor executor, final Callback<Snapshot<T>> onSnapshot,
+                                            Callback<Sequenced<T>> onDelta) {
+        synchronized (_lock) {
+            Collection<Sequenced<T>> state = _latest != null ? _latest.values() : _history;
+            final Snapshot<T> snapshot = new Snapshot<T>(_sequence, new ArrayList<Sequenced<T>>(state));
+            executor.execute(new Runnable() {
+                public void run() {
+                    onSnapshot.onMessage(snapshot);
+                }
+
+                @Override
+                public String toString() {
+                    return onSnapshot + "(" + snapshot + ")";
+                }
+            });
+            return _deltas.subscribe(executor, onDelta);
+        }
+    }
+
+    /**
+     * Retained state of a channel at a sequence.
+     */
+    public static class Snapshot<T> {
+        private final long _sequence;
+        private final List<Sequenced<T>> _messages;
+
+        public Snapshot(long sequence, List<Sequenced<T>> messages) {
+            _sequence = sequence;
+            _messages = messages;
+        }
+
+        /**
+         * @return sequence of the last message published before the snapshot, 0 if none
+         */
+        public long getSequence() {
+            return _sequence;
+        }
+
+        /**
+         * @return retained messages in sequence order
+         */
+        public List<Sequenced<T>> getMessages() {
+            return _messages;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot(" + _sequence + ", " + _messages + ")";
+        }
+    }
+}
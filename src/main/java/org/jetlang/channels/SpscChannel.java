@@ -0,0 +1,139 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.DisposingExecutor;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Channel connecting one publishing thread to one subscribing fiber through a bounded ring. Publishing does not
+ * lock or allocate: the message is stored in the ring and the consumer fiber is woken only when it is idle. The
+ * consumer drains every available message in a single event of its batch and publishes its position once per
+ * batch.
+ *
+ * There must be a single publishing thread, typically a fiber, and at most one subscriber. Messages published
+ * without a subscriber are discarded. The publisher waits while the ring is full.
+ */
+public class SpscChannel<T> implements Channel<T> {
+
+    private final Object[] _ring;
+    private final int _mask;
+    private final AtomicLong _tail = new AtomicLong();
+    private final AtomicLong _head = new AtomicLong();
+    private final AtomicBoolean _scheduled = new AtomicBoolean();
+    private final Drain _drain = new Drain();
+    private volatile DisposingExecutor _fiber;
+    private volatile Callback<T> _receive;
+    private long _cachedHead;
+
+    /**
+     * @param capacity ring size. Rounded up to a power of two.
+     */
+    public SpscChannel(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        _ring = new Object[size];
+        _mask = size - 1;
+    }
+
+    public void publish(T msg) {
+        DisposingExecutor fiber = _fiber;
+        if (fiber == null) {
+            return;
+        }
+        long tail = _tail.get();
+        if (tail - _cachedHead > _mask) {
+            _cachedHead = _head.get();
+            while (tail - _cachedHead > _mask) {
+                LockSupport.parkNanos(1000);
+                _cachedHead = _head.get();
+            }
+        }
+        _ring[(int) tail & _mask] = msg;
+        // a full fence, so a consumer going idle either sees this message or is woken
+        _tail.set(tail + 1);
+        if (!_scheduled.get() && _scheduled.compareAndSet(false, true)) {
+            fiber.execute(_drain);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if there is already a subscriber
+     */
+    public synchronized Disposable subscribe(final DisposingExecutor fiber, Callback<T> receive) {
+        if (_fiber != null) {
+            throw new IllegalStateException("SpscChannel already has a subscriber");
+        }
+        _receive = receive;
+        _fiber = fiber;
+        Disposable unSub = new Disposable() {
+            public void dispose() {
+                unsubscribe();
+                fiber.remove(this);
+            }
+        };
+        fiber.add(unSub);
+        return unSub;
+    }
+
+    /**
+     * Unlike other channels, the subscription's callback runs on its fiber rather than the publishing thread.
+     */
+    public Disposable subscribe(Subscribable<T> sub) {
+        return subscribe(sub.getQueue(), sub);
+    }
+
+    private synchronized void unsubscribe() {
+        _fiber = null;
+        _receive = null;
+    }
+
+    public boolean hasSubscriber() {
+        return _fiber != null;
+    }
+
+    /**
+     * @return messages published but not yet delivered
+     */
+    public int size() {
+        return (int) (_tail.get() - _head.get());
+    }
+
+    private class Drain implements Runnable {
+        @SuppressWarnings("unchecked")
+        public void run() {
+            long head = _head.get();
+            long tail = _tail.get();
+            Callback<T> receive = _receive;
+            while (head < tail) {
+                int index = (int) head & _mask;
+                T msg = (T) _ring[index];
+                _ring[index] = null;
+                head++;
+                if (receive != null) {
+                    receive.onMessage(msg);
+                }
+            }
+            _head.lazySet(head);
+            _scheduled.set(false);
+            if (_tail.get() > head && _scheduled.compareAndSet(false, true)) {
+                DisposingExecutor fiber = _fiber;
+                if (fiber != null) {
+                    fiber.execute(this);
+                } else {
+                    _scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Draining SpscChannel via " + _receive;
+        }
+    }
+}
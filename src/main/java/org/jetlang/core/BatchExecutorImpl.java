@@ -7,6 +7,10 @@ package org.jetlang.core;
  */
 public class BatchExecutorImpl implements BatchExecutor {
     public void execute(EventReader toExecute) {
+        if (toExecute instanceof EventBuffer) {
+            ((EventBuffer) toExecute).runAll();
+            return;
+        }
         for (int i = 0; i < toExecute.size(); i++) {
             toExecute.get(i).run();
         }
@@ -0,0 +1,157 @@
+package org.jetlang.core;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event queue with a cap on its size. The {@link OverflowPolicy} decides what happens to events that arrive
+ * when the queue is full. Unlike {@link CappedBlockingQueue}, the consuming thread is never blocked when it
+ * posts to its own queue.
+ */
+public class BoundedEventQueue implements EventQueue {
+
+    private volatile boolean _running = true;
+    private final Lock _lock = new ReentrantLock();
+    private final Condition empty = _lock.newCondition();
+    private final Condition full = _lock.newCondition();
+    private EventBuffer _queue = new EventBuffer();
+    private final int cap;
+    private final OverflowPolicy policy;
+    private Thread consumer;
+
+    public BoundedEventQueue(int maxQueueSize, OverflowPolicy policy) {
+        this.cap = maxQueueSize;
+        this.policy = policy;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isRunning() {
+        return _running;
+    }
+
+    public void setRunning(boolean isRunning) {
+        _lock.lock();
+        try {
+            this._running = isRunning;
+            full.signalAll();
+            empty.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void put(Runnable r) {
+        boolean reject = false;
+        boolean handOff = false;
+        _lock.lock();
+        try {
+            if (!_running)
+                return;
+            if (_queue.size() >= cap) {
+                switch (policy.getAction()) {
+                    case Block:
+                        if (Thread.currentThread() == consumer) {
+                            policy.acceptedOverCap();
+                        } else if (!awaitSpace()) {
+                            if (!_running)
+                                return;
+                            reject = true;
+                        }
+                        break;
+                    case Reject:
+                        reject = true;
+                        break;
+                    case DropNewest:
+                        policy.droppedNewest();
+                        return;
+                    case DropOldest:
+                        _queue.removeFirst();
+                        policy.droppedOldest();
+                        break;
+                    case HandOff:
+                        handOff = true;
+                        break;
+                }
+            }
+            if (!reject && !handOff) {
+                _queue.add(r);
+                empty.signal();
+            }
+        } finally {
+            _lock.unlock();
+        }
+        if (reject) {
+            policy.reject(r);
+        } else if (handOff) {
+            policy.handOff(r);
+        }
+    }
+
+    /**
+     * @return true if space became available. False on timeout or stop.
+     */
+    private boolean awaitSpace() {
+        policy.blocked();
+        long nanos = policy.getTimeoutNanos();
+        boolean forever = nanos == Long.MAX_VALUE;
+        while (_queue.size() >= cap && _running) {
+            try {
+                if (forever) {
+                    full.await();
+                } else {
+                    if (nanos <= 0)
+                        return false;
+                    nanos = full.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return _running;
+    }
+
+    public EventBuffer swap(EventBuffer buffer) {
+        _lock.lock();
+        try {
+            consumer = Thread.currentThread();
+            while (_queue.isEmpty() && _running) {
+                try {
+                    empty.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            EventBuffer toReturn = _queue;
+            _queue = buffer;
+            full.signalAll();
+            return toReturn;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        _lock.lock();
+        try {
+            return _queue.isEmpty();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of events waiting to be consumed
+     */
+    public int size() {
+        _lock.lock();
+        try {
+            return _queue.size();
+        } finally {
+            _lock.unlock();
+        }
+    }
+}
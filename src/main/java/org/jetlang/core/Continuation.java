@@ -0,0 +1,15 @@
+package org.jetlang.core;
+
+/**
+ * Long running job split into slices. Each slice runs as an event on a fiber.
+ * @see Cooperative
+ */
+public interface Continuation {
+
+    /**
+     * Continues the job until it completes or the budget expires.
+     *
+     * @return true while work remains
+     */
+    boolean resume(TimeBudget budget);
+}
@@ -0,0 +1,87 @@
+package org.jetlang.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs long jobs on a fiber without holding it for their whole duration. The job runs for one time slice, then
+ * its continuation is queued again behind the events already waiting on the fiber. Those events run in the
+ * batches executed before the next slice, so small events wait at most about one slice behind a long job.
+ *
+ * <pre>
+ * Cooperative.run(fiber, new Continuation() {
+ *     int next;
+ *     public boolean resume(TimeBudget budget) {
+ *         while (next &lt; entries.size()) {
+ *             book.add(entries.get(next++));
+ *             if ((next &amp; 255) == 0 &amp;&amp; budget.isExpired()) {
+ *                 return true;
+ *             }
+ *         }
+ *         return false;
+ *     }
+ * }, 1, TimeUnit.MILLISECONDS, null);
+ * </pre>
+ */
+public final class Cooperative {
+
+    private Cooperative() {
+    }
+
+    /**
+     * Queues the first slice of the job. Can be called from any thread, including from an event running on the
+     * fiber to hand off the rest of its work.
+     *
+     * @param slice      time each slice may run for
+     * @param onComplete run on the fiber after the last slice. May be null.
+     * @return Disposable that stops the job before its next slice
+     */
+    public static Disposable run(DisposingExecutor fiber, Continuation job, long slice, TimeUnit unit,
+                                 Runnable onComplete) {
+        Slice first = new Slice(fiber, job, new TimeBudget(slice, unit), onComplete);
+        fiber.add(first);
+        fiber.execute(first);
+        return first;
+    }
+
+    private static class Slice implements Runnable, Disposable {
+        private final DisposingExecutor fiber;
+        private final Continuation job;
+        private final TimeBudget budget;
+        private final Runnable onComplete;
+        private volatile boolean disposed;
+        private long slices;
+
+        private Slice(DisposingExecutor fiber, Continuation job, TimeBudget budget, Runnable onComplete) {
+            this.fiber = fiber;
+            this.job = job;
+            this.budget = budget;
+            this.onComplete = onComplete;
+        }
+
+        public void run() {
+            if (disposed) {
+                return;
+            }
+            budget.start();
+            slices++;
+            if (job.resume(budget)) {
+                fiber.execute(this);
+                return;
+            }
+            fiber.remove(this);
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        }
+
+        public void dispose() {
+            disposed = true;
+            fiber.remove(this);
+        }
+
+        @Override
+        public String toString() {
+            return "Slice " + slices + " of " + job;
+        }
+    }
+}
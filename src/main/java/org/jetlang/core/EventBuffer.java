@@ -1,7 +1,28 @@
 package org.jetlang.core;
 
 public class EventBuffer extends MessageBuffer<Runnable> implements EventReader {
+
+    public EventBuffer() {
+    }
+
+    /**
+     * @see MessageBuffer#MessageBuffer(int, int)
+     */
+    public EventBuffer(int initialCapacity, int shrinkAfter) {
+        super(initialCapacity, shrinkAfter);
+    }
+
     public void add(Runnable runnable) {
         super.add(runnable);
     }
+
+    /**
+     * Runs each event in order, reading the backing array directly.
+     */
+    public void runAll() {
+        Object[] local = events;
+        for (int i = head, end = tail; i < end; i++) {
+            ((Runnable) local[i]).run();
+        }
+    }
 }
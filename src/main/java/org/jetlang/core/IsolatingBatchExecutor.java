@@ -0,0 +1,238 @@
+package org.jetlang.core;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that keeps running a batch after an event throws. The exception is passed to the error handler and
+ * execution continues with the next event, so neither the rest of the batch nor the fiber is lost. Events run
+ * inside a single try block per batch; a new block is only entered after a failure.
+ *
+ * An optional circuit breaker pauses the fiber after repeated failures. Once it trips, the rest of the batch and
+ * every later batch are held instead of run until the cool down has passed; the fiber's thread is never blocked.
+ * Held events then run in order before newer ones. Pass the fiber to {@link #setScheduler} so that held events
+ * resume when the cool down ends even if nothing else is queued; otherwise they run with the next batch after it.
+ *
+ * One instance per fiber. Counters can be read from any thread.
+ */
+public class IsolatingBatchExecutor implements BatchExecutor {
+
+    public interface ErrorHandler {
+        void onError(Runnable event, RuntimeException failure);
+    }
+
+    /**
+     * Trips when a number of failures occur within a window.
+     */
+    public static class CircuitBreaker {
+        private final long[] failures;
+        private final long windowNanos;
+        private final long coolDownNanos;
+        private int next;
+
+        /**
+         * @param maxFailures failures within the window that trip the breaker
+         * @param window      length of the window
+         * @param coolDown    pause once tripped
+         */
+        public CircuitBreaker(int maxFailures, long window, long coolDown, TimeUnit unit) {
+            if (maxFailures < 1) {
+                throw new IllegalArgumentException("maxFailures must be positive: " + maxFailures);
+            }
+            if (window < 0 || coolDown < 0) {
+                throw new IllegalArgumentException("window: " + window + " coolDown: " + coolDown);
+            }
+            this.failures = new long[maxFailures];
+            this.windowNanos = unit.toNanos(window);
+            this.coolDownNanos = unit.toNanos(coolDown);
+        }
+
+        /**
+         * @return true if the failure trips the breaker
+         */
+        private boolean record(long now) {
+            failures[next] = now;
+            next = (next + 1) % failures.length;
+            // the slot written next holds the oldest of the latest failures
+            long oldest = failures[next];
+            if (oldest != 0 && now - oldest <= windowNanos) {
+                // forget the failures that tripped it
+                Arrays.fill(failures, 0);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final ErrorHandler _handler;
+    private final CircuitBreaker _breaker;
+    private final Runnable _wake = new Runnable() {
+        public void run() {
+        }
+
+        @Override
+        public String toString() {
+            return "Resume after circuit breaker cool down";
+        }
+    };
+    private EventBuffer _held = new EventBuffer();
+    private EventBuffer _resumed = new EventBuffer();
+    private volatile Scheduler _scheduler;
+    private volatile long _errors;
+    private volatile long _trips;
+    private volatile long _pausedUntil;
+
+    /**
+     * @param breaker may be null to never pause
+     */
+    public IsolatingBatchExecutor(ErrorHandler handler, CircuitBreaker breaker) {
+        _handler = handler;
+        _breaker = breaker;
+    }
+
+    public IsolatingBatchExecutor(ErrorHandler handler) {
+        this(handler, null);
+    }
+
+    /**
+     * @param fiber fiber running this executor. Used to schedule the end of a pause.
+     */
+    public void setScheduler(Scheduler fiber) {
+        _scheduler = fiber;
+    }
+
+    public void execute(EventReader toExecute) {
+        if (_pausedUntil != 0) {
+            long remaining = _pausedUntil - System.nanoTime();
+            if (remaining > 0) {
+                hold(toExecute, 0, remaining);
+                return;
+            }
+            _pausedUntil = 0;
+            EventBuffer resumed = _held;
+            _held = _resumed;
+            _resumed = resumed;
+            boolean completed = run(resumed);
+            resumed.clear();
+            if (!completed) {
+                hold(toExecute, 0, _breaker.coolDownNanos);
+                return;
+            }
+        }
+        run(toExecute);
+    }
+
+    /**
+     * Runs the events, isolating failures. If the breaker trips, the events not yet run are held.
+     *
+     * @return false if the breaker tripped
+     */
+    private boolean run(EventReader toExecute) {
+        if (toExecute instanceof EventBuffer) {
+            return run((EventBuffer) toExecute);
+        }
+        int size = toExecute.size();
+        int i = 0;
+        while (i < size) {
+            try {
+                for (; i < size; i++) {
+                    toExecute.get(i).run();
+                }
+            } catch (RuntimeException e) {
+                if (onFailure(toExecute.get(i++), e)) {
+                    hold(toExecute, i, _breaker.coolDownNanos);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as above but reads the buffer's array directly, as {@link EventBuffer#runAll()} does.
+     */
+    private boolean run(EventBuffer buffer) {
+        Object[] events = buffer.events;
+        int i = buffer.head;
+        int end = buffer.tail;
+        while (i < end) {
+            try {
+                for (; i < end; i++) {
+                    ((Runnable) events[i]).run();
+                }
+            } catch (RuntimeException e) {
+                if (onFailure((Runnable) events[i++], e)) {
+                    hold(buffer, i - buffer.head, _breaker.coolDownNanos);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the failure tripped the breaker
+     */
+    private boolean onFailure(Runnable event, RuntimeException e) {
+        _errors++;
+        try {
+            _handler.onError(event, e);
+        } catch (RuntimeException handlerFailure) {
+            // a failing handler must not stop the batch either
+        }
+        if (_breaker == null || !_breaker.record(System.nanoTime())) {
+            return false;
+        }
+        _trips++;
+        // never zero, which means not paused
+        _pausedUntil = (System.nanoTime() + _breaker.coolDownNanos) | 1;
+        scheduleWake(_breaker.coolDownNanos);
+        return true;
+    }
+
+    /**
+     * Holds events from the index on. A wake event that arrives early is scheduled again for the rest of the pause.
+     */
+    private void hold(EventReader events, int from, long remaining) {
+        boolean woken = false;
+        for (int i = from, size = events.size(); i < size; i++) {
+            Runnable event = events.get(i);
+            if (event == _wake) {
+                woken = true;
+            } else {
+                _held.add(event);
+            }
+        }
+        if (woken) {
+            scheduleWake(remaining);
+        }
+    }
+
+    private void scheduleWake(long nanos) {
+        Scheduler scheduler = _scheduler;
+        if (scheduler != null) {
+            scheduler.schedule(_wake, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return events that threw
+     */
+    public long getErrorCount() {
+        return _errors;
+    }
+
+    /**
+     * @return times the circuit breaker tripped
+     */
+    public long getTripCount() {
+        return _trips;
+    }
+
+    /**
+     * @return true while events are held by the circuit breaker
+     */
+    public boolean isPaused() {
+        return _pausedUntil != 0;
+    }
+}
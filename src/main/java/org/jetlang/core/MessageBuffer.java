@@ -1,28 +1,165 @@
 package org.jetlang.core;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ * Array backed buffer of messages. Clearing keeps the array for reuse, so a buffer swapped back and forth by a
+ * queue allocates nothing once it has grown to the usual batch size. After a burst the array would stay at its
+ * peak size, so a buffer whose use stays below a quarter of its capacity for a number of clears is shrunk.
+ *
+ * Removing the first message is constant time.
+ */
 public class MessageBuffer<T> implements MessageReader<T> {
-    private ArrayList<T> events = new ArrayList<T>();
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int DEFAULT_SHRINK_AFTER = 1000;
+
+    Object[] events;
+    int head;
+    int tail;
+    private final int minCapacity;
+    private final int shrinkAfter;
+    private int quietClears;
+    private int peak;
+
+    public MessageBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_SHRINK_AFTER);
+    }
+
+    /**
+     * @param initialCapacity capacity allocated up front. The buffer never shrinks below it.
+     * @param shrinkAfter     clears in a row using less than a quarter of the capacity before the buffer is
+     *                        shrunk. 0 to never shrink.
+     */
+    public MessageBuffer(int initialCapacity, int shrinkAfter) {
+        this.minCapacity = Math.max(1, initialCapacity);
+        this.shrinkAfter = shrinkAfter;
+        this.events = new Object[minCapacity];
+    }
 
     public int size() {
-        return events.size();
+        return tail - head;
     }
 
+    @SuppressWarnings("unchecked")
     public T get(int index) {
-        return events.get(index);
+        if (index < 0 || index >= tail - head) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (tail - head));
+        }
+        return (T) events[head + index];
     }
 
     public void add(T r) {
-        events.add(r);
+        if (tail == events.length) {
+            makeRoom(1);
+        }
+        events[tail++] = r;
+    }
+
+    /**
+     * Appends every message of the reader.
+     */
+    @SuppressWarnings("unchecked")
+    public void addAll(MessageReader<? extends T> reader) {
+        int count = reader.size();
+        if (tail + count > events.length) {
+            makeRoom(count);
+        }
+        if (reader instanceof MessageBuffer) {
+            MessageBuffer<? extends T> buffer = (MessageBuffer<? extends T>) reader;
+            System.arraycopy(buffer.events, buffer.head, events, tail, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                events[tail + i] = reader.get(i);
+            }
+        }
+        tail += count;
+    }
+
+    /**
+     * Moves every message to the target and clears this buffer.
+     *
+     * @return number of messages moved
+     */
+    public int drainTo(MessageBuffer<? super T> target) {
+        int count = size();
+        target.addAll(this);
+        clear();
+        return count;
+    }
+
+    /**
+     * Passes each message to the callback in order.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Callback<? super T> callback) {
+        Object[] local = events;
+        for (int i = head, end = tail; i < end; i++) {
+            callback.onMessage((T) local[i]);
+        }
+    }
+
+    public T removeFirst() {
+        if (head == tail) {
+            throw new IndexOutOfBoundsException("Buffer is empty");
+        }
+        @SuppressWarnings("unchecked")
+        T first = (T) events[head];
+        events[head++] = null;
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+        return first;
     }
 
     public boolean isEmpty() {
-        return events.isEmpty();
+        return head == tail;
     }
 
     public void clear() {
-        events.clear();
+        int used = tail - head;
+        Arrays.fill(events, head, tail, null);
+        head = 0;
+        tail = 0;
+        if (shrinkAfter <= 0 || events.length <= minCapacity) {
+            return;
+        }
+        peak = Math.max(peak, used);
+        if (peak >= events.length / 4) {
+            quietClears = 0;
+            peak = 0;
+        } else if (++quietClears >= shrinkAfter) {
+            events = new Object[Math.max(minCapacity, peak * 2)];
+            quietClears = 0;
+            peak = 0;
+        }
+    }
+
+    /**
+     * @return length of the backing array
+     */
+    public int capacity() {
+        return events.length;
     }
 
+    private void makeRoom(int extra) {
+        int size = tail - head;
+        int required = size + extra;
+        if (head > 0 && required <= events.length / 2) {
+            // reclaim the space freed by removeFirst instead of growing
+            System.arraycopy(events, head, events, 0, size);
+            Arrays.fill(events, size, tail, null);
+        } else {
+            int capacity = events.length;
+            while (capacity < required) {
+                capacity = capacity * 2;
+            }
+            Object[] grown = new Object[Math.max(capacity, events.length * 2)];
+            System.arraycopy(events, head, grown, 0, size);
+            events = grown;
+        }
+        head = 0;
+        tail = size;
+    }
 }
@@ -0,0 +1,175 @@
+package org.jetlang.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Determines what a bounded event queue does with an event that arrives when the queue is full.
+ * Instances keep counters for every action taken. A policy may be shared by several queues, in which case
+ * the counters are totals across those queues.
+ *
+ * Blocking is never applied to the thread that consumes the queue. Events a fiber posts to itself are
+ * accepted beyond the cap so a full fiber cannot deadlock on its own queue.
+ */
+public class OverflowPolicy {
+
+    public enum Action {
+        Block,
+        Reject,
+        DropNewest,
+        DropOldest,
+        HandOff
+    }
+
+    private final Action action;
+    private final long timeoutNanos;
+    private final Callback<Runnable> onReject;
+    private final Executor overflowExecutor;
+
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong droppedNewest = new AtomicLong();
+    private final AtomicLong droppedOldest = new AtomicLong();
+    private final AtomicLong handedOff = new AtomicLong();
+    private final AtomicLong acceptedOverCap = new AtomicLong();
+
+    private OverflowPolicy(Action action, long timeoutNanos, Callback<Runnable> onReject, Executor overflowExecutor) {
+        this.action = action;
+        this.timeoutNanos = timeoutNanos;
+        this.onReject = onReject;
+        this.overflowExecutor = overflowExecutor;
+    }
+
+    /**
+     * Producers wait until space is available.
+     */
+    public static OverflowPolicy block() {
+        return new OverflowPolicy(Action.Block, Long.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Producers wait up to the timeout for space, then the event is rejected with a {@link RejectedExecutionException}.
+     */
+    public static OverflowPolicy block(long timeout, TimeUnit unit) {
+        return new OverflowPolicy(Action.Block, unit.toNanos(timeout), null, null);
+    }
+
+    /**
+     * Producers wait up to the timeout for space, then the event is passed to the callback on the producing thread.
+     */
+    public static OverflowPolicy block(long timeout, TimeUnit unit, Callback<Runnable> onReject) {
+        return new OverflowPolicy(Action.Block, unit.toNanos(timeout), onReject, null);
+    }
+
+    /**
+     * Throws a {@link RejectedExecutionException} to the producer.
+     */
+    public static OverflowPolicy reject() {
+        return new OverflowPolicy(Action.Reject, 0, null, null);
+    }
+
+    /**
+     * Passes rejected events to the callback on the producing thread.
+     */
+    public static OverflowPolicy reject(Callback<Runnable> onReject) {
+        return new OverflowPolicy(Action.Reject, 0, onReject, null);
+    }
+
+    public static OverflowPolicy dropNewest() {
+        return new OverflowPolicy(Action.DropNewest, 0, null, null);
+    }
+
+    public static OverflowPolicy dropOldest() {
+        return new OverflowPolicy(Action.DropOldest, 0, null, null);
+    }
+
+    /**
+     * Events that do not fit are executed by the overflow executor instead. Ordering relative to queued
+     * events is not preserved.
+     */
+    public static OverflowPolicy handOff(Executor overflowExecutor) {
+        return new OverflowPolicy(Action.HandOff, 0, null, overflowExecutor);
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * @return maximum time to block in nanoseconds. Long.MAX_VALUE if producers wait indefinitely.
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * Called by queues without holding the queue lock.
+     */
+    public void reject(Runnable r) {
+        rejected.incrementAndGet();
+        if (onReject != null) {
+            onReject.onMessage(r);
+        } else {
+            throw new RejectedExecutionException("Queue full. Rejected: " + r);
+        }
+    }
+
+    /**
+     * Called by queues without holding the queue lock.
+     */
+    public void handOff(Runnable r) {
+        handedOff.incrementAndGet();
+        overflowExecutor.execute(r);
+    }
+
+    public void droppedNewest() {
+        droppedNewest.incrementAndGet();
+    }
+
+    public void droppedOldest() {
+        droppedOldest.incrementAndGet();
+    }
+
+    public void blocked() {
+        blocked.incrementAndGet();
+    }
+
+    public void acceptedOverCap() {
+        acceptedOverCap.incrementAndGet();
+    }
+
+    /**
+     * @return number of puts that had to wait for space
+     */
+    public long getBlockedCount() {
+        return blocked.get();
+    }
+
+    /**
+     * @return number of events rejected, including blocked puts that timed out
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getDroppedNewestCount() {
+        return droppedNewest.get();
+    }
+
+    public long getDroppedOldestCount() {
+        return droppedOldest.get();
+    }
+
+    public long getHandedOffCount() {
+        return handedOff.get();
+    }
+
+    /**
+     * @return number of events a consumer posted to its own full queue
+     */
+    public long getAcceptedOverCapCount() {
+        return acceptedOverCap.get();
+    }
+}
@@ -0,0 +1,76 @@
+package org.jetlang.core;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking queue with priority lanes. Each swap returns pending events with higher lanes first.
+ * Events put without a priority go to the lowest lane.
+ */
+public class PriorityEventQueue implements EventQueue {
+
+    private volatile boolean _running = true;
+    private final Lock _lock = new ReentrantLock();
+    private final Condition _waiter = _lock.newCondition();
+    private final PriorityLanes _lanes;
+
+    public PriorityEventQueue(int laneCount) {
+        this(new PriorityLanes(laneCount));
+    }
+
+    public PriorityEventQueue(PriorityLanes lanes) {
+        _lanes = lanes;
+    }
+
+    public boolean isRunning() {
+        return _running;
+    }
+
+    public void setRunning(boolean isRunning) {
+        this._running = isRunning;
+    }
+
+    public void put(Runnable r) {
+        put(r, 0);
+    }
+
+    public void put(Runnable r, int priority) {
+        _lock.lock();
+        try {
+            _lanes.add(r, priority);
+            _waiter.signal();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Fills the supplied buffer with pending events and returns it.
+     */
+    public EventBuffer swap(EventBuffer buffer) {
+        _lock.lock();
+        try {
+            while (_lanes.isEmpty() && _running) {
+                try {
+                    _waiter.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            _lanes.drainTo(buffer);
+            return buffer;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        _lock.lock();
+        try {
+            return _lanes.isEmpty();
+        } finally {
+            _lock.unlock();
+        }
+    }
+}
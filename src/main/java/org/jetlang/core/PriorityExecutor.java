@@ -0,0 +1,16 @@
+package org.jetlang.core;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executor that accepts a priority for each event. Higher priorities are executed first.
+ * Events of equal priority execute in the order queued.
+ */
+public interface PriorityExecutor extends Executor {
+
+    /**
+     * Queue an event in the lane for the given priority. Priority 0 is the lowest and is used by
+     * {@link #execute(Runnable)}.
+     */
+    void execute(Runnable command, int priority);
+}
@@ -0,0 +1,116 @@
+package org.jetlang.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pending events split into lanes by priority. Lane 0 has the lowest priority. Each drain moves events
+ * from the highest lane down, so control events queued behind bulk data run first.
+ *
+ * A drain moves at most maxBatchSize events, except that every non-empty lane is guaranteed at least
+ * minPerLane events so lower lanes are never starved by a busy higher lane.
+ *
+ * Not thread safe. Queues guard access with their own lock.
+ */
+public class PriorityLanes {
+
+    private final ArrayDeque<Runnable>[] lanes;
+    private final int maxBatchSize;
+    private final int minPerLane;
+    private int size;
+
+    /**
+     * Creates lanes that are drained completely on each swap, highest priority first.
+     */
+    public PriorityLanes(int laneCount) {
+        this(laneCount, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * @param laneCount    number of priorities. Priorities outside 0..laneCount-1 are clamped.
+     * @param maxBatchSize maximum number of events moved per drain
+     * @param minPerLane   events guaranteed to each non-empty lane per drain
+     */
+    public PriorityLanes(int laneCount, int maxBatchSize, int minPerLane) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be positive: " + laneCount);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ArrayDeque<Runnable>[] created = new ArrayDeque[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            created[i] = new ArrayDeque<Runnable>();
+        }
+        lanes = created;
+        this.maxBatchSize = maxBatchSize;
+        this.minPerLane = minPerLane;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public void add(Runnable r, int priority) {
+        if (priority < 0) {
+            priority = 0;
+        } else if (priority >= lanes.length) {
+            priority = lanes.length - 1;
+        }
+        lanes[priority].addLast(r);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int size(int priority) {
+        return lanes[priority].size();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes the oldest event in the lowest non-empty lane.
+     */
+    public Runnable removeOldest() {
+        for (ArrayDeque<Runnable> lane : lanes) {
+            if (!lane.isEmpty()) {
+                size--;
+                return lane.pollFirst();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves pending events into the buffer, highest priority first.
+     *
+     * @return number of events moved
+     */
+    public int drainTo(EventBuffer buffer) {
+        int reserved = 0;
+        for (ArrayDeque<Runnable> lane : lanes) {
+            reserved += Math.min(lane.size(), minPerLane);
+        }
+        int budget = maxBatchSize;
+        int moved = 0;
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            ArrayDeque<Runnable> lane = lanes[i];
+            int laneSize = lane.size();
+            int guaranteed = Math.min(laneSize, minPerLane);
+            reserved -= guaranteed;
+            int toTake = Math.max(guaranteed, Math.min(laneSize, budget - reserved));
+            for (int j = 0; j < toTake; j++) {
+                buffer.add(lane.pollFirst());
+            }
+            budget -= toTake;
+            moved += toTake;
+        }
+        size -= moved;
+        return moved;
+    }
+}
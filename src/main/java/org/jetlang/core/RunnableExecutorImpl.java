@@ -8,9 +8,10 @@ import java.util.List;
  * Default implementation that queues and executes events. A dedicated thread is typically
  * used to consume events.
  */
-public class RunnableExecutorImpl implements RunnableExecutor {
+public class RunnableExecutorImpl implements RunnableExecutor, PriorityExecutor {
 
     private final EventQueue _commands;
+    private final PriorityEventQueue _priorityCommands;
     private final List<Disposable> _disposables = Collections.synchronizedList(new ArrayList<Disposable>());
 
     private final BatchExecutor _commandExecutor;
@@ -25,6 +26,7 @@ public class RunnableExecutorImpl implements RunnableExecutor {
 
     public RunnableExecutorImpl(BatchExecutor exec, EventQueue q) {
         this._commands = q;
+        this._priorityCommands = q instanceof PriorityEventQueue ? (PriorityEventQueue) q : null;
         this._commandExecutor = exec;
     }
 
@@ -32,6 +34,18 @@ public class RunnableExecutorImpl implements RunnableExecutor {
         _commands.put(command);
     }
 
+    /**
+     * Queues the command in the lane for the priority if constructed with a {@link PriorityEventQueue}.
+     * Otherwise the priority is ignored.
+     */
+    public void execute(Runnable command, int priority) {
+        if (_priorityCommands != null) {
+            _priorityCommands.put(command, priority);
+        } else {
+            _commands.put(command);
+        }
+    }
+
     public void run() {
         EventBuffer buffer = new EventBuffer();
         while (_commands.isRunning()) {
@@ -0,0 +1,36 @@
+package org.jetlang.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time allowed for one slice of a long running job on a fiber. The job checks the budget as it goes and returns
+ * once it is spent, so other events get a turn.
+ */
+public class TimeBudget {
+
+    private final long _nanos;
+    private long _deadline;
+
+    public TimeBudget(long budget, TimeUnit unit) {
+        _nanos = unit.toNanos(budget);
+        start();
+    }
+
+    /**
+     * Restarts the budget from now.
+     */
+    public void start() {
+        _deadline = System.nanoTime() + _nanos;
+    }
+
+    /**
+     * Reads the clock, so jobs with very small units of work should check every few hundred units.
+     */
+    public boolean isExpired() {
+        return System.nanoTime() - _deadline >= 0;
+    }
+
+    public long remainingNanos() {
+        return Math.max(0, _deadline - System.nanoTime());
+    }
+}
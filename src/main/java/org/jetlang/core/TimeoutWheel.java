@@ -0,0 +1,180 @@
+package org.jetlang.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel for large numbers of short lived timeouts that are usually cancelled, such as request
+ * timeouts. A single recurring tick is scheduled on the owning fiber instead of one scheduled task per
+ * timeout. Adding and cancelling a timeout are O(1) and expired timeouts are run in a batch on the fiber.
+ *
+ * Timeouts are rounded up to whole ticks and may fire up to one tick late.
+ */
+public class TimeoutWheel implements Disposable {
+
+    private final Scheduler fiber;
+    private final long tickNanos;
+    private final Node[] buckets;
+    private final int mask;
+    private final long startNanos;
+    private final Object lock = new Object();
+    private final Disposable ticker;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param fiber      fiber that runs the tick and every expired timeout
+     * @param tick       resolution of the wheel
+     * @param unit       unit of tick
+     * @param wheelSize  number of buckets. Rounded up to a power of two.
+     */
+    public TimeoutWheel(Scheduler fiber, long tick, TimeUnit unit, int wheelSize) {
+        this.fiber = fiber;
+        this.tickNanos = unit.toNanos(tick);
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tick must be positive: " + tick);
+        }
+        int bucketCount = 1;
+        while (bucketCount < wheelSize) {
+            bucketCount <<= 1;
+        }
+        buckets = new Node[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            Node head = new Node(null, 0);
+            head.next = head;
+            head.prev = head;
+            buckets[i] = head;
+        }
+        mask = bucketCount - 1;
+        startNanos = System.nanoTime();
+        Runnable onTick = new Runnable() {
+            public void run() {
+                expire(System.nanoTime());
+            }
+
+            @Override
+            public String toString() {
+                return "Tick " + TimeoutWheel.this;
+            }
+        };
+        ticker = fiber.scheduleAtFixedRate(onTick, tick, tick, unit);
+    }
+
+    public TimeoutWheel(Scheduler fiber, long tick, TimeUnit unit) {
+        this(fiber, tick, unit, 512);
+    }
+
+    /**
+     * @return scheduler that runs the timeouts
+     */
+    public Scheduler getFiber() {
+        return fiber;
+    }
+
+    /**
+     * Adds a timeout. The command runs on the fiber unless disposed first.
+     *
+     * @return Disposable that cancels the timeout in constant time
+     */
+    public Disposable schedule(Runnable command, long delay, TimeUnit unit) {
+        long elapsed = System.nanoTime() - startNanos + unit.toNanos(delay);
+        long deadline = (elapsed + tickNanos - 1) / tickNanos;
+        Node node = new Node(command, 0);
+        synchronized (lock) {
+            if (deadline <= currentTick) {
+                deadline = currentTick + 1;
+            }
+            node.deadline = deadline;
+            Node head = buckets[(int) (deadline & mask)];
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+        return node;
+    }
+
+    /**
+     * @return number of pending timeouts
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * Stops the tick. Pending timeouts will not run.
+     */
+    public void dispose() {
+        ticker.dispose();
+    }
+
+    /**
+     * Advances the wheel to the time supplied and runs every expired timeout.
+     */
+    void expire(long nowNanos) {
+        Node expired = null;
+        synchronized (lock) {
+            long targetTick = (nowNanos - startNanos) / tickNanos;
+            // no need to visit each bucket more than once when catching up
+            long firstTick = Math.max(currentTick + 1, targetTick - mask);
+            for (long t = firstTick; t <= targetTick; t++) {
+                Node head = buckets[(int) (t & mask)];
+                Node n = head.next;
+                while (n != head) {
+                    Node next = n.next;
+                    if (n.deadline <= targetTick) {
+                        n.unlink();
+                        size--;
+                        n.next = expired;
+                        expired = n;
+                    }
+                    n = next;
+                }
+            }
+            if (targetTick > currentTick) {
+                currentTick = targetTick;
+            }
+        }
+        while (expired != null) {
+            Node next = expired.next;
+            expired.next = null;
+            expired.command.run();
+            expired = next;
+        }
+    }
+
+    private final class Node implements Disposable {
+        private final Runnable command;
+        private long deadline;
+        private Node next;
+        private Node prev;
+
+        private Node(Runnable command, long deadline) {
+            this.command = command;
+            this.deadline = deadline;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+        }
+
+        public void dispose() {
+            synchronized (lock) {
+                if (prev != null) {
+                    unlink();
+                    next = null;
+                    size--;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Timeout(" + command + ")";
+        }
+    }
+}
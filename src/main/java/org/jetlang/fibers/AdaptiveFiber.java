@@ -0,0 +1,317 @@
+package org.jetlang.fibers;
+
+import org.jetlang.core.BatchExecutor;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.EventBuffer;
+import org.jetlang.core.SchedulerImpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fiber that runs on a shared pool until it gets busy, then moves to a dedicated thread until it cools down.
+ * The event rate and queue depth are sampled at a fixed interval. The fiber is promoted once either crosses its
+ * threshold for a number of consecutive samples, and demoted once both stay below the demotion thresholds for as
+ * many samples.
+ *
+ * As with {@link PoolFiber}, at most one flush is pending at any time. A transition only changes where the next
+ * flush runs, so events keep their order and the fiber is disposed the same way in either mode.
+ */
+public class AdaptiveFiber implements Fiber {
+
+    public enum Mode {
+        Pooled, Dedicated
+    }
+
+    /**
+     * Thresholds for changing mode.
+     */
+    public static class Policy {
+        private final long promoteRate;
+        private final int promoteDepth;
+        private final long demoteRate;
+        private final int samples;
+
+        /**
+         * @param promoteRate  events per second that promote the fiber
+         * @param promoteDepth pending events that promote the fiber
+         * @param demoteRate   events per second below which a fiber with an empty queue is demoted
+         * @param samples      consecutive samples required before changing mode
+         */
+        public Policy(long promoteRate, int promoteDepth, long demoteRate, int samples) {
+            this.promoteRate = promoteRate;
+            this.promoteDepth = promoteDepth;
+            this.demoteRate = demoteRate;
+            this.samples = samples;
+        }
+    }
+
+    private static final ThreadFactory DAEMON = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "AdaptiveFiber");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private final Object _lock = new Object();
+    private final Executor _pool;
+    private final BatchExecutor _commandExecutor;
+    private final Policy _policy;
+    private final Collection<Disposable> _disposables = Collections.synchronizedList(new ArrayList<Disposable>());
+    private final SchedulerImpl _scheduler;
+    private final ScheduledFuture<?> _sampler;
+    private final long _sampleNanos;
+    private final Runnable _flushRunnable;
+    private EventBuffer _queue = new EventBuffer();
+    private EventBuffer _buffer = new EventBuffer();
+    private ExecutionState _state = ExecutionState.Created;
+    private boolean _flushPending;
+    private ExecutorService _dedicated;
+    private long _generation;
+    private long _dispatchedGeneration;
+    private volatile Mode _mode = Mode.Pooled;
+
+    private long _arrived;
+    private int _hotSamples;
+    private int _coldSamples;
+    private volatile long _lastRate;
+    private volatile long _promotions;
+    private volatile long _demotions;
+
+    /**
+     * @param pool           executes flushes while pooled
+     * @param scheduler      runs delayed events and the sampler
+     * @param sampleInterval time between samples of rate and depth
+     */
+    public AdaptiveFiber(Executor pool, ScheduledExecutorService scheduler, BatchExecutor executor, Policy policy,
+                         long sampleInterval, TimeUnit unit) {
+        _pool = pool;
+        _commandExecutor = executor;
+        _policy = policy;
+        _scheduler = new SchedulerImpl(this, scheduler);
+        _sampleNanos = unit.toNanos(sampleInterval);
+        _flushRunnable = new Runnable() {
+            public void run() {
+                flush();
+            }
+
+            @Override
+            public String toString() {
+                return "Flushing " + AdaptiveFiber.this;
+            }
+        };
+        _sampler = scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                sample();
+            }
+        }, sampleInterval, sampleInterval, unit);
+    }
+
+    public void execute(Runnable command) {
+        synchronized (_lock) {
+            if (_state == ExecutionState.Stopped) {
+                return;
+            }
+            _queue.add(command);
+            _arrived++;
+            if (_state == ExecutionState.Running && !_flushPending) {
+                _flushPending = true;
+                dispatch();
+            }
+        }
+    }
+
+    private void dispatch() {
+        _dispatchedGeneration = _generation;
+        if (_dedicated != null) {
+            _dedicated.execute(_flushRunnable);
+        } else {
+            _pool.execute(_flushRunnable);
+        }
+    }
+
+    /**
+     * @return null once the queue is empty, or when the mode changed since the flush was dispatched. The flush is
+     * then dispatched again to the executor of the new mode.
+     */
+    private EventBuffer swap(EventBuffer buffer, long generation) {
+        synchronized (_lock) {
+            if (_queue.isEmpty() || _state != ExecutionState.Running) {
+                _flushPending = false;
+                return null;
+            }
+            if (generation != _generation) {
+                dispatch();
+                return null;
+            }
+            EventBuffer toReturn = _queue;
+            _queue = buffer;
+            return toReturn;
+        }
+    }
+
+    private void flush() {
+        long generation;
+        synchronized (_lock) {
+            generation = _dispatchedGeneration;
+        }
+        EventBuffer swap = swap(_buffer, generation);
+        while (swap != null) {
+            _buffer = swap;
+            _commandExecutor.execute(_buffer);
+            _buffer.clear();
+            swap = swap(_buffer, generation);
+        }
+    }
+
+    /**
+     * Samples the event rate and queue depth and changes mode if the policy says so.
+     */
+    void sample() {
+        ExecutorService retired = null;
+        synchronized (_lock) {
+            if (_state == ExecutionState.Stopped) {
+                return;
+            }
+            long rate = _arrived * 1000000000L / _sampleNanos;
+            _arrived = 0;
+            _lastRate = rate;
+            int depth = _queue.size();
+            if (_mode == Mode.Pooled) {
+                _hotSamples = rate >= _policy.promoteRate || depth >= _policy.promoteDepth ? _hotSamples + 1 : 0;
+                if (_hotSamples >= _policy.samples) {
+                    _hotSamples = 0;
+                    _dedicated = Executors.newSingleThreadExecutor(DAEMON);
+                    _mode = Mode.Dedicated;
+                    _generation++;
+                    _promotions++;
+                }
+            } else {
+                _coldSamples = rate < _policy.demoteRate && depth == 0 ? _coldSamples + 1 : 0;
+                if (_coldSamples >= _policy.samples) {
+                    _coldSamples = 0;
+                    retired = _dedicated;
+                    _dedicated = null;
+                    _mode = Mode.Pooled;
+                    _generation++;
+                    _demotions++;
+                }
+            }
+        }
+        if (retired != null) {
+            // a flush already queued on the thread still runs before it exits
+            retired.shutdown();
+        }
+    }
+
+    public void start() {
+        synchronized (_lock) {
+            if (_state == ExecutionState.Running) {
+                throw new RuntimeException("Already Started");
+            }
+            if (_state == ExecutionState.Stopped) {
+                return;
+            }
+            _state = ExecutionState.Running;
+            if (!_queue.isEmpty()) {
+                _flushPending = true;
+                dispatch();
+            }
+        }
+    }
+
+    public void dispose() {
+        ExecutorService dedicated;
+        synchronized (_lock) {
+            _state = ExecutionState.Stopped;
+            dedicated = _dedicated;
+            _dedicated = null;
+        }
+        _sampler.cancel(false);
+        if (dedicated != null) {
+            dedicated.shutdown();
+        }
+        synchronized (_disposables) {
+            //copy list to prevent concurrent mod
+            for (Disposable r : _disposables.toArray(new Disposable[_disposables.size()])) {
+                r.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return where flushes currently run
+     */
+    public Mode getMode() {
+        return _mode;
+    }
+
+    /**
+     * @return events per second seen by the latest sample
+     */
+    public long getEventRate() {
+        return _lastRate;
+    }
+
+    public long getPromotionCount() {
+        return _promotions;
+    }
+
+    public long getDemotionCount() {
+        return _demotions;
+    }
+
+    /**
+     * @return pending events
+     */
+    public int getQueueDepth() {
+        synchronized (_lock) {
+            return _queue.size();
+        }
+    }
+
+    public void add(Disposable runOnStop) {
+        _disposables.add(runOnStop);
+    }
+
+    public boolean remove(Disposable disposable) {
+        return _disposables.remove(disposable);
+    }
+
+    public int size() {
+        return _disposables.size();
+    }
+
+    public Disposable schedule(Runnable command, long delay, TimeUnit unit) {
+        return _scheduler.schedule(command, delay, unit);
+    }
+
+    public Disposable scheduleAtFixedRate(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return register(_scheduler.scheduleAtFixedRate(command, initialDelay, delay, unit));
+    }
+
+    public Disposable scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return register(_scheduler.scheduleWithFixedDelay(command, initialDelay, delay, unit));
+    }
+
+    private Disposable register(final Disposable stopper) {
+        Disposable wrapper = new Disposable() {
+            public void dispose() {
+                stopper.dispose();
+                remove(this);
+            }
+        };
+        //scheduler is shared so tasks removed individually
+        add(wrapper);
+        return wrapper;
+    }
+}
@@ -0,0 +1,8 @@
+package org.jetlang.fibers;
+
+/**
+ * Creates fibers for components that manage their own fibers.
+ */
+public interface FiberFactory {
+    Fiber create();
+}
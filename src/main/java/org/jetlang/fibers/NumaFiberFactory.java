@@ -0,0 +1,262 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.Subscriber;
+import org.jetlang.core.BatchExecutor;
+import org.jetlang.core.BatchExecutorImpl;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.SchedulerImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Creates pool fibers that share threads grouped by NUMA node. Each fiber has a home node and its flushes run on
+ * that node's threads, so events and the buffers holding them stay on one socket. An idle thread takes a flush
+ * from another node only when that node's backlog exceeds the steal threshold.
+ *
+ * Idle threads park until work arrives. Queuing a flush wakes an idle thread of the fiber's node, and once the
+ * node's backlog exceeds the steal threshold also an idle thread of another node, which then takes work from it.
+ *
+ * Threads are pinned to their node's CPUs where {@link ThreadAffinity} is supported. Fibers are created on the
+ * node with the fewest live fibers unless a node is given, or placed near the fiber publishing to them.
+ */
+public class NumaFiberFactory implements FiberFactory, Disposable {
+
+    private final NumaTopology _topology;
+    private final NodeGroup[] _groups;
+    private final ScheduledExecutorService _scheduler;
+    private final int _stealThreshold;
+    private final Map<Fiber, Integer> _homes = new ConcurrentHashMap<Fiber, Integer>();
+    private volatile boolean _running = true;
+
+    /**
+     * @param threadsPerNode worker threads started for each node
+     * @param stealThreshold queued flushes a node must exceed before other nodes take its work
+     * @param pin            pin worker threads to the CPUs of their node
+     */
+    public NumaFiberFactory(NumaTopology topology, int threadsPerNode, int stealThreshold, boolean pin) {
+        _topology = topology;
+        _stealThreshold = stealThreshold;
+        _scheduler = SchedulerImpl.createSchedulerThatIgnoresEventsAfterStop();
+        _groups = new NodeGroup[topology.nodeCount()];
+        for (int node = 0; node < _groups.length; node++) {
+            _groups[node] = new NodeGroup(node);
+        }
+        for (NodeGroup group : _groups) {
+            group.startWorkers(threadsPerNode, pin ? topology.cpuList(group.node) : null);
+        }
+    }
+
+    /**
+     * Discovers the topology and starts one thread per CPU, pinned.
+     */
+    public NumaFiberFactory() {
+        this(NumaTopology.discover());
+    }
+
+    /**
+     * Starts one thread per CPU of the first node on every node, pinned.
+     */
+    public NumaFiberFactory(NumaTopology topology) {
+        this(topology, topology.cpus(0).size(), 4, true);
+    }
+
+    public NumaTopology getTopology() {
+        return _topology;
+    }
+
+    /**
+     * Creates a fiber on the node with the fewest live fibers.
+     */
+    public Fiber create() {
+        int least = 0;
+        for (int node = 1; node < _groups.length; node++) {
+            if (_groups[node].fibers.get() < _groups[least].fibers.get()) {
+                least = node;
+            }
+        }
+        return create(least);
+    }
+
+    public Fiber create(int node) {
+        return create(node, new BatchExecutorImpl());
+    }
+
+    public Fiber create(int node, BatchExecutor batchExecutor) {
+        final NodeGroup group = _groups[node];
+        final Fiber fiber = new PoolFiber(group, batchExecutor, _scheduler);
+        group.fibers.incrementAndGet();
+        _homes.put(fiber, node);
+        fiber.add(new Disposable() {
+            public void dispose() {
+                if (_homes.remove(fiber) != null) {
+                    group.fibers.decrementAndGet();
+                }
+            }
+        });
+        return fiber;
+    }
+
+    /**
+     * Creates a fiber on the home node of another fiber, typically the one publishing to it.
+     */
+    public Fiber createNear(Fiber publisher) {
+        return create(homeNode(publisher));
+    }
+
+    /**
+     * Creates a fiber on the node given and subscribes it to the channel. The fiber must still be started.
+     *
+     * @param node expected to be the node of the channel's publishers
+     */
+    public <T> Fiber subscribe(Subscriber<T> channel, int node, Callback<T> receive) {
+        Fiber fiber = create(node);
+        channel.subscribe(fiber, receive);
+        return fiber;
+    }
+
+    /**
+     * @return home node of a live fiber created by this factory, or -1
+     */
+    public int homeNode(Fiber fiber) {
+        Integer node = _homes.get(fiber);
+        return node != null ? node : -1;
+    }
+
+    /**
+     * @return flushes run by threads of the node, including those taken from other nodes
+     */
+    public long getExecutedCount(int node) {
+        return _groups[node].executed.get();
+    }
+
+    /**
+     * @return flushes that threads of the node took from other nodes
+     */
+    public long getStolenCount(int node) {
+        return _groups[node].stolen.get();
+    }
+
+    public void dispose() {
+        _running = false;
+        _scheduler.shutdown();
+        for (NodeGroup group : _groups) {
+            for (Thread worker : group.workers) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Wakes an idle thread of another node so it can take work from the busy node.
+     */
+    private void signalOthers(NodeGroup busy) {
+        for (NodeGroup group : _groups) {
+            if (group != busy && group.wakeOne()) {
+                return;
+            }
+        }
+    }
+
+    private Runnable steal(NodeGroup thief) {
+        for (NodeGroup victim : _groups) {
+            if (victim != thief && victim.queue.size() > _stealThreshold) {
+                Runnable r = victim.queue.poll();
+                if (r != null) {
+                    thief.stolen.incrementAndGet();
+                    return r;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Threads of one node and the flushes queued for them.
+     */
+    private class NodeGroup implements Executor {
+        private final int node;
+        private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+        private final ConcurrentLinkedQueue<Thread> idle = new ConcurrentLinkedQueue<Thread>();
+        private final List<Thread> workers = new ArrayList<Thread>();
+        private final AtomicInteger fibers = new AtomicInteger();
+        private final AtomicLong executed = new AtomicLong();
+        private final AtomicLong stolen = new AtomicLong();
+
+        private NodeGroup(int node) {
+            this.node = node;
+        }
+
+        private void startWorkers(int count, final String cpuList) {
+            for (int i = 0; i < count; i++) {
+                Thread worker = new Thread(new Runnable() {
+                    public void run() {
+                        if (cpuList != null) {
+                            ThreadAffinity.pinCurrentThread(cpuList);
+                        }
+                        work();
+                    }
+                }, "numa-" + node + "-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        public void execute(Runnable command) {
+            queue.add(command);
+            wakeOne();
+            if (queue.size() > _stealThreshold) {
+                signalOthers(this);
+            }
+        }
+
+        private boolean wakeOne() {
+            Thread worker = idle.poll();
+            if (worker == null) {
+                return false;
+            }
+            LockSupport.unpark(worker);
+            return true;
+        }
+
+        private Runnable take() {
+            Runnable r = queue.poll();
+            return r != null ? r : steal(this);
+        }
+
+        private void work() {
+            Thread current = Thread.currentThread();
+            while (_running) {
+                Runnable r = take();
+                if (r == null) {
+                    idle.add(current);
+                    // checked again once registered, so work queued before registering is not missed
+                    r = take();
+                    if (r == null) {
+                        LockSupport.park(this);
+                    }
+                    idle.remove(current);
+                }
+                if (r != null) {
+                    executed.incrementAndGet();
+                    try {
+                        r.run();
+                    } catch (RuntimeException e) {
+                        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.jetlang.fibers;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * CPUs grouped by NUMA node. Discovered from /sys on Linux. Elsewhere, or when /sys lists no nodes, every CPU
+ * available to the JVM is placed on a single node.
+ */
+public class NumaTopology {
+
+    private final List<List<Integer>> _nodes;
+
+    /**
+     * @param nodes CPUs of each node, indexed by node
+     */
+    public NumaTopology(List<List<Integer>> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node required");
+        }
+        List<List<Integer>> copy = new ArrayList<List<Integer>>();
+        for (List<Integer> cpus : nodes) {
+            copy.add(Collections.unmodifiableList(new ArrayList<Integer>(cpus)));
+        }
+        _nodes = Collections.unmodifiableList(copy);
+    }
+
+    public static NumaTopology discover() {
+        File[] dirs = new File("/sys/devices/system/node").listFiles();
+        TreeMap<Integer, List<Integer>> nodes = new TreeMap<Integer, List<Integer>>();
+        if (dirs != null) {
+            for (File dir : dirs) {
+                String name = dir.getName();
+                if (name.startsWith("node") && name.length() > 4 && Character.isDigit(name.charAt(4))) {
+                    int node = Integer.parseInt(name.substring(4));
+                    String cpus = ThreadAffinity.cpusOfNode(node);
+                    if (cpus != null && cpus.length() > 0) {
+                        nodes.put(node, ThreadAffinity.parseCpuList(cpus));
+                    }
+                }
+            }
+        }
+        if (nodes.isEmpty()) {
+            return flat(Runtime.getRuntime().availableProcessors());
+        }
+        // node ids may have gaps, so nodes are renumbered in order
+        return new NumaTopology(new ArrayList<List<Integer>>(nodes.values()));
+    }
+
+    /**
+     * @return a single node holding CPUs 0 to cpuCount - 1
+     */
+    public static NumaTopology flat(int cpuCount) {
+        List<Integer> cpus = new ArrayList<Integer>();
+        for (int i = 0; i < cpuCount; i++) {
+            cpus.add(i);
+        }
+        return new NumaTopology(Collections.singletonList(cpus));
+    }
+
+    public int nodeCount() {
+        return _nodes.size();
+    }
+
+    public List<Integer> cpus(int node) {
+        return _nodes.get(node);
+    }
+
+    /**
+     * @return CPUs of the node in the kernel's list format
+     */
+    public String cpuList(int node) {
+        StringBuilder list = new StringBuilder();
+        for (Integer cpu : _nodes.get(node)) {
+            if (list.length() > 0) {
+                list.append(',');
+            }
+            list.append(cpu);
+        }
+        return list.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "NumaTopology" + _nodes;
+    }
+}
@@ -0,0 +1,358 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.Converter;
+import org.jetlang.channels.Subscriber;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.SynchronousDisposingExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group of fibers that processes work by key. Each key is owned by one fiber, so events for a key run in order
+ * while different keys run in parallel. Keys are assigned with consistent hashing, so resizing the group moves
+ * only the keys of the partitions added or removed.
+ *
+ * Resizing drains before handing off: fibers losing keys run every event already queued before fibers gaining
+ * those keys run any new event, so per key ordering holds across a resize. New events for moved keys are held
+ * until the last fiber losing keys has drained, which then passes them on. No fiber waits during the handoff.
+ */
+public class PartitionedFiberGroup implements Disposable {
+
+    private final FiberFactory _factory;
+    private final int _virtualNodes;
+    private final ReentrantReadWriteLock[] _routingLocks;
+    private final SynchronousDisposingExecutor _subscriptions = new SynchronousDisposingExecutor();
+    private volatile Ring _ring;
+    private boolean _started;
+
+    /**
+     * @param partitions   initial number of fibers
+     * @param virtualNodes points per partition on the hash ring. More points spread keys more evenly.
+     */
+    public PartitionedFiberGroup(FiberFactory factory, int partitions, int virtualNodes) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        _factory = factory;
+        _virtualNodes = virtualNodes;
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        _routingLocks = new ReentrantReadWriteLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            _routingLocks[i] = new ReentrantReadWriteLock();
+        }
+        Fiber[] fibers = new Fiber[partitions];
+        for (int i = 0; i < partitions; i++) {
+            fibers[i] = factory.create();
+        }
+        _ring = new Ring(fibers, virtualNodes);
+    }
+
+    public PartitionedFiberGroup(FiberFactory factory, int partitions) {
+        this(factory, partitions, 128);
+    }
+
+    public synchronized void start() {
+        _started = true;
+        for (Fiber fiber : _ring.fibers) {
+            fiber.start();
+        }
+    }
+
+    public int size() {
+        return _ring.fibers.length;
+    }
+
+    /**
+     * @return fiber currently owning the key. The owner can change when the group is resized.
+     */
+    public Fiber fiberFor(Object key) {
+        return _ring.route(hash(key));
+    }
+
+    /**
+     * Queues the command on the fiber owning the key.
+     */
+    public void execute(Object key, Runnable command) {
+        ReentrantReadWriteLock.ReadLock lock = _routingLocks[(int) Thread.currentThread().getId() & (_routingLocks.length - 1)].readLock();
+        lock.lock();
+        try {
+            Ring ring = _ring;
+            long hash = hash(key);
+            Fiber owner = ring.route(hash);
+            if (ring.handoff == null || !ring.handoff.hold(hash, owner, command)) {
+                owner.execute(command);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delivers each message from the channel on the fiber owning its key.
+     */
+    public <T> Disposable subscribe(Subscriber<T> channel, final Converter<T, ?> keyResolver, final Callback<T> receive) {
+        Callback<T> router = new Callback<T>() {
+            public void onMessage(final T message) {
+                execute(keyResolver.convert(message), new Runnable() {
+                    public void run() {
+                        receive.onMessage(message);
+                    }
+
+                    @Override
+                    public String toString() {
+                        return receive + "(" + message + ")";
+                    }
+                });
+            }
+        };
+        return channel.subscribe(_subscriptions, router);
+    }
+
+    /**
+     * Changes the number of partitions. New fibers are created and started as needed; removed fibers are disposed
+     * once they have run their queued events. Publishers are paused only while the routing table is replaced.
+     */
+    public synchronized void resize(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        Ring old = _ring;
+        Fiber[] fibers = Arrays.copyOf(old.fibers, partitions);
+        for (int i = old.fibers.length; i < partitions; i++) {
+            fibers[i] = _factory.create();
+            if (_started) {
+                fibers[i].start();
+            }
+        }
+        Ring next = new Ring(fibers, _virtualNodes);
+        Set<Fiber> sources = new LinkedHashSet<Fiber>();
+        Set<Fiber> targets = new LinkedHashSet<Fiber>();
+        old.moves(next, sources, targets);
+        Fiber[] removed = Arrays.copyOfRange(old.fibers, Math.min(partitions, old.fibers.length), old.fibers.length);
+        Handoff handoff = new Handoff(old, next, sources.toArray(new Fiber[sources.size()]), removed, old.handoff);
+        next.handoff = handoff;
+        lockAll();
+        try {
+            _ring = next;
+        } finally {
+            unlockAll();
+        }
+        // a handoff still in progress must pass on its held events before this one starts draining
+        if (old.handoff == null || !old.handoff.runAfter(handoff)) {
+            handoff.start();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantReadWriteLock lock : _routingLocks) {
+            lock.writeLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (ReentrantReadWriteLock lock : _routingLocks) {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes channel subscriptions and disposes every fiber.
+     */
+    public synchronized void dispose() {
+        _subscriptions.dispose();
+        for (Fiber fiber : _ring.fibers) {
+            fiber.dispose();
+        }
+    }
+
+    private static long hash(Object key) {
+        return mix(key.hashCode());
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Holds events for keys changing owner until every fiber losing keys has run the events queued before the
+     * resize. The drain marker that runs last passes the held events to their new owners in order.
+     */
+    private static class Handoff implements Runnable {
+        private final Ring from;
+        private final Ring to;
+        private final Fiber[] sources;
+        private final Fiber[] removed;
+        private final Handoff previous;
+        private final AtomicInteger remaining;
+        private final List<Fiber> heldOwners = new ArrayList<Fiber>();
+        private final List<Runnable> held = new ArrayList<Runnable>();
+        private Handoff successor;
+        private volatile boolean released;
+
+        private Handoff(Ring from, Ring to, Fiber[] sources, Fiber[] removed, Handoff previous) {
+            this.from = from;
+            this.to = to;
+            this.sources = sources;
+            this.removed = removed;
+            this.previous = previous != null && !previous.released ? previous : null;
+            this.remaining = new AtomicInteger(sources.length);
+        }
+
+        /**
+         * @return true if the command was held by this or an earlier handoff still in progress
+         */
+        private boolean hold(long hash, Fiber owner, Runnable command) {
+            for (Handoff h = this; h != null; h = h.previous) {
+                if (!h.released && h.holdMoved(hash, owner, command)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized boolean holdMoved(long hash, Fiber owner, Runnable command) {
+            if (released || from.route(hash) == to.route(hash)) {
+                return false;
+            }
+            heldOwners.add(owner);
+            held.add(command);
+            return true;
+        }
+
+        /**
+         * @return false if already released, in which case the caller starts the next handoff itself
+         */
+        private synchronized boolean runAfter(Handoff next) {
+            if (released) {
+                return false;
+            }
+            successor = next;
+            return true;
+        }
+
+        private void start() {
+            if (sources.length == 0) {
+                release();
+            }
+            for (Fiber source : sources) {
+                source.execute(this);
+            }
+        }
+
+        /**
+         * Drain marker queued on each fiber losing keys.
+         */
+        public void run() {
+            if (remaining.decrementAndGet() == 0) {
+                release();
+            }
+        }
+
+        private void release() {
+            Handoff next;
+            synchronized (this) {
+                for (int i = 0; i < held.size(); i++) {
+                    heldOwners.get(i).execute(held.get(i));
+                }
+                heldOwners.clear();
+                held.clear();
+                released = true;
+                next = successor;
+            }
+            for (final Fiber fiber : removed) {
+                fiber.execute(new Runnable() {
+                    public void run() {
+                        fiber.dispose();
+                    }
+                });
+            }
+            if (next != null) {
+                next.start();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Partition handoff";
+        }
+    }
+
+    /**
+     * Consistent hash ring. Partition i keeps the same points whatever the number of partitions.
+     */
+    private static class Ring {
+        private final Fiber[] fibers;
+        private final long[] points;
+        private final int[] owners;
+        private Handoff handoff;
+
+        private Ring(Fiber[] fibers, int virtualNodes) {
+            this.fibers = fibers;
+            int count = fibers.length * virtualNodes;
+            long[][] sorted = new long[count][];
+            for (int p = 0; p < fibers.length; p++) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    sorted[p * virtualNodes + v] = new long[]{mix(((long) p << 32) | v), p};
+                }
+            }
+            Arrays.sort(sorted, new Comparator<long[]>() {
+                public int compare(long[] a, long[] b) {
+                    return a[0] < b[0] ? -1 : a[0] == b[0] ? 0 : 1;
+                }
+            });
+            points = new long[count];
+            owners = new int[count];
+            for (int i = 0; i < count; i++) {
+                points[i] = sorted[i][0];
+                owners[i] = (int) sorted[i][1];
+            }
+        }
+
+        private int owner(long hash) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return owners[index == points.length ? 0 : index];
+        }
+
+        private Fiber route(long hash) {
+            return fibers[owner(hash)];
+        }
+
+        /**
+         * Collects fibers losing and gaining keys when changing to the next ring. Ranges are compared at every
+         * point of both rings, which are the only places ownership can change.
+         */
+        private void moves(Ring next, Set<Fiber> sources, Set<Fiber> targets) {
+            for (long p : points) {
+                move(next, p, sources, targets);
+            }
+            for (long p : next.points) {
+                move(next, p, sources, targets);
+            }
+        }
+
+        private void move(Ring next, long hash, Set<Fiber> sources, Set<Fiber> targets) {
+            Fiber from = route(hash);
+            Fiber to = next.route(hash);
+            if (from != to) {
+                sources.add(from);
+                targets.add(to);
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.Publisher;
+import org.jetlang.channels.SpscChannel;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chain of processing stages placed on fibers. An isolated stage runs on a dedicated fiber and receives its
+ * input through that fiber's queue. A fused stage runs inline on the fiber of the stage before it, so a hop
+ * between fused stages is a method call. Placement is declared per stage and can be overridden by name when
+ * building, so stages can be moved between fibers without changing their code.
+ *
+ * A fused first stage runs on the publishing thread. Input to the first isolated stage is queued on its fiber,
+ * since any thread may publish to the pipeline. A later isolated stage whose upstream stage runs on a
+ * {@link ThreadFiber} receives its input through a {@link SpscChannel}, drained in one event per batch of its
+ * fiber. The upstream thread waits while that ring is full, which would stall or deadlock a shared pool, so
+ * stages fed from pooled fibers are queued on their fiber instead.
+ */
+public class Pipeline<I> implements Publisher<I>, Disposable {
+
+    public enum Placement {
+        Fused, Isolated
+    }
+
+    /**
+     * Step of a pipeline. Publishes any number of outputs per input to the next stage.
+     */
+    public interface Stage<I, O> {
+        void process(I input, Publisher<O> output);
+    }
+
+    private final Publisher<I> _head;
+    private final List<Fiber> _fibers;
+    private final List<StageStats> _stats;
+
+    private Pipeline(Publisher<I> head, List<Fiber> fibers, List<StageStats> stats) {
+        _head = head;
+        _fibers = fibers;
+        _stats = Collections.unmodifiableList(stats);
+    }
+
+    public static <T> Builder<T, T> builder(FiberFactory fibers) {
+        return new Builder<T, T>(fibers);
+    }
+
+    public void publish(I msg) {
+        _head.publish(msg);
+    }
+
+    public void start() {
+        for (Fiber fiber : _fibers) {
+            fiber.start();
+        }
+    }
+
+    public void dispose() {
+        for (Fiber fiber : _fibers) {
+            fiber.dispose();
+        }
+    }
+
+    /**
+     * @return number of dedicated fibers
+     */
+    public int fiberCount() {
+        return _fibers.size();
+    }
+
+    /**
+     * @return statistics for each stage in order. Empty unless measuring was enabled.
+     */
+    public List<StageStats> getStats() {
+        return _stats;
+    }
+
+    public static class Builder<I, O> {
+        private final FiberFactory _fibers;
+        private final List<StageDef<?, ?>> _stages;
+        private final Map<String, Placement> _overrides;
+        private boolean _measure;
+        private int _ringSize = 1024;
+
+        private Builder(FiberFactory fibers) {
+            this(fibers, new ArrayList<StageDef<?, ?>>(), new HashMap<String, Placement>());
+        }
+
+        private Builder(FiberFactory fibers, List<StageDef<?, ?>> stages, Map<String, Placement> overrides) {
+            _fibers = fibers;
+            _stages = stages;
+            _overrides = overrides;
+        }
+
+        /**
+         * Appends a stage.
+         *
+         * @param name unique name used by {@link #place} and in statistics
+         */
+        public <N> Builder<I, N> then(String name, Stage<? super O, N> stage, Placement placement) {
+            _stages.add(new StageDef<O, N>(name, stage, placement));
+            Builder<I, N> next = new Builder<I, N>(_fibers, _stages, _overrides);
+            next._measure = _measure;
+            next._ringSize = _ringSize;
+            return next;
+        }
+
+        /**
+         * Overrides the placement declared for the named stage.
+         */
+        public Builder<I, O> place(String name, Placement placement) {
+            _overrides.put(name, placement);
+            return this;
+        }
+
+        /**
+         * Records per stage service time and, for isolated stages, time spent queued. Costs a few clock reads
+         * per stage and message.
+         */
+        public Builder<I, O> measure(boolean measure) {
+            _measure = measure;
+            return this;
+        }
+
+        /**
+         * Sets the capacity of the rings fed by isolated stages on dedicated threads. An upstream stage waits while
+         * its ring is full. Defaults to 1024.
+         */
+        public Builder<I, O> ringSize(int ringSize) {
+            _ringSize = ringSize;
+            return this;
+        }
+
+        /**
+         * @param sink receives the output of the last stage on that stage's fiber
+         */
+        public Pipeline<I> build(Publisher<O> sink) {
+            List<Fiber> fibers = new ArrayList<Fiber>();
+            Fiber[] stageFibers = new Fiber[_stages.size()];
+            Fiber[] upstreamFibers = new Fiber[_stages.size()];
+            Fiber upstream = null;
+            for (int i = 0; i < _stages.size(); i++) {
+                if (placement(_stages.get(i)) == Placement.Isolated) {
+                    stageFibers[i] = _fibers.create();
+                    fibers.add(stageFibers[i]);
+                    upstreamFibers[i] = upstream;
+                    upstream = stageFibers[i];
+                }
+            }
+            List<StageStats> stats = new ArrayList<StageStats>();
+            Publisher<?> next = sink;
+            for (int i = _stages.size() - 1; i >= 0; i--) {
+                StageDef<?, ?> def = _stages.get(i);
+                StageStats stat = _measure ? new StageStats(def.name, placement(def)) : null;
+                if (stat != null) {
+                    stats.add(0, stat);
+                }
+                next = link(def, next, stageFibers[i], upstreamFibers[i], stat, _ringSize);
+            }
+            @SuppressWarnings("unchecked")
+            Publisher<I> head = (Publisher<I>) next;
+            return new Pipeline<I>(head, fibers, stats);
+        }
+
+        /**
+         * Connects a stage to the publisher of the stage after it. {@link #then} only appends a stage whose input
+         * is the output of the stage before it, so next always accepts the stage's output.
+         *
+         * @param upstream fiber of the previous isolated stage, or null if any thread may publish to the stage
+         */
+        private static <A, B> Publisher<A> link(StageDef<A, B> def, Publisher<?> next, Fiber fiber,
+                                                Fiber upstream, StageStats stat, int ringSize) {
+            @SuppressWarnings("unchecked")
+            Publisher<B> output = (Publisher<B>) next;
+            Runner<A, B> runner = new Runner<A, B>(def.stage, output, stat);
+            if (fiber == null) {
+                return runner;
+            }
+            // only a dedicated thread may wait on a full ring
+            boolean ring = upstream instanceof ThreadFiber;
+            if (ring && stat != null) {
+                return new TimedRingHop<A>(fiber, runner, stat, ringSize);
+            }
+            if (ring) {
+                return new RingHop<A>(fiber, runner, ringSize);
+            }
+            return new Hop<A>(fiber, runner, stat);
+        }
+
+        private Placement placement(StageDef<?, ?> def) {
+            Placement override = _overrides.get(def.name);
+            return override != null ? override : def.placement;
+        }
+    }
+
+    private static class StageDef<A, B> {
+        private final String name;
+        private final Stage<? super A, B> stage;
+        private final Placement placement;
+
+        private StageDef(String name, Stage<? super A, B> stage, Placement placement) {
+            this.name = name;
+            this.stage = stage;
+            this.placement = placement;
+        }
+    }
+
+    /**
+     * Runs a stage. Time spent in fused downstream stages is subtracted from the stage's own time.
+     */
+    private static class Runner<A, B> implements Publisher<A> {
+        private final Stage<? super A, B> stage;
+        private final Publisher<B> output;
+        private final StageStats stats;
+
+        private Runner(Stage<? super A, B> stage, Publisher<B> output, StageStats stats) {
+            this.stage = stage;
+            this.output = output;
+            this.stats = stats;
+        }
+
+        public void publish(A msg) {
+            if (stats == null) {
+                stage.process(msg, output);
+                return;
+            }
+            // per call, since a fused first stage runs on every publishing thread
+            NestedTimer<B> nested = new NestedTimer<B>(output);
+            long start = System.nanoTime();
+            stage.process(msg, nested);
+            stats.record(System.nanoTime() - start - nested.nanos);
+        }
+    }
+
+    /**
+     * Times fused downstream stages called by one stage invocation.
+     */
+    private static class NestedTimer<B> implements Publisher<B> {
+        private final Publisher<B> next;
+        private long nanos;
+
+        private NestedTimer(Publisher<B> next) {
+            this.next = next;
+        }
+
+        public void publish(B msg) {
+            long start = System.nanoTime();
+            next.publish(msg);
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Queues input for an isolated stage on its fiber.
+     */
+    private static class Hop<A> implements Publisher<A> {
+        private final Fiber fiber;
+        private final Publisher<A> runner;
+        private final StageStats stats;
+
+        private Hop(Fiber fiber, Publisher<A> runner, StageStats stats) {
+            this.fiber = fiber;
+            this.runner = runner;
+            this.stats = stats;
+        }
+
+        public void publish(final A msg) {
+            final long queued = stats != null ? System.nanoTime() : 0;
+            fiber.execute(new Runnable() {
+                public void run() {
+                    if (stats != null) {
+                        stats.recordQueued(System.nanoTime() - queued);
+                    }
+                    runner.publish(msg);
+                }
+            });
+        }
+    }
+
+    /**
+     * Passes input from the single upstream thread to an isolated stage through a ring.
+     */
+    private static class RingHop<A> implements Publisher<A> {
+        private final SpscChannel<A> ring;
+
+        private RingHop(Fiber fiber, final Publisher<A> runner, int ringSize) {
+            this.ring = new SpscChannel<A>(ringSize);
+            ring.subscribe(fiber, new Callback<A>() {
+                public void onMessage(A msg) {
+                    runner.publish(msg);
+                }
+            });
+        }
+
+        public void publish(A msg) {
+            ring.publish(msg);
+        }
+    }
+
+    /**
+     * Ring hop used while measuring. Each message is paired with the time it was published.
+     */
+    private static class TimedRingHop<A> implements Publisher<A> {
+        private final RingHop<Timed<A>> ring;
+
+        private TimedRingHop(Fiber fiber, final Publisher<A> runner, final StageStats stats, int ringSize) {
+            this.ring = new RingHop<Timed<A>>(fiber, new Publisher<Timed<A>>() {
+                public void publish(Timed<A> timed) {
+                    stats.recordQueued(System.nanoTime() - timed.nanos);
+                    runner.publish(timed.msg);
+                }
+            }, ringSize);
+        }
+
+        public void publish(A msg) {
+            ring.publish(new Timed<A>(msg, System.nanoTime()));
+        }
+    }
+
+    private static class Timed<A> {
+        private final A msg;
+        private final long nanos;
+
+        private Timed(A msg, long nanos) {
+            this.msg = msg;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Latency of one stage. Written by the stage's fiber, or by every publishing thread for a fused first stage,
+     * and readable from any thread.
+     */
+    public static class StageStats {
+        private final String name;
+        private final Placement placement;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong queuedNanos = new AtomicLong();
+
+        private StageStats(String name, Placement placement) {
+            this.name = name;
+            this.placement = placement;
+        }
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        private void recordQueued(long nanos) {
+            queuedNanos.addAndGet(nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Placement getPlacement() {
+            return placement;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return time spent processing, excluding fused downstream stages
+         */
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @return time inputs spent queued for an isolated stage. Zero for fused stages.
+         */
+        public long getQueuedNanos() {
+            return queuedNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            long count = getCount();
+            long n = Math.max(1, count);
+            return name + "(" + placement + ") count=" + count + " meanNanos=" + getTotalNanos() / n
+                    + " maxNanos=" + getMaxNanos() + " meanQueuedNanos=" + getQueuedNanos() / n;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.jetlang.fibers;
 import org.jetlang.core.BatchExecutor;
 import org.jetlang.core.Disposable;
 import org.jetlang.core.EventBuffer;
+import org.jetlang.core.OverflowPolicy;
+import org.jetlang.core.PriorityLanes;
 import org.jetlang.core.SchedulerImpl;
 
 import java.util.ArrayList;
@@ -18,9 +20,9 @@ import java.util.concurrent.atomic.AtomicReference;
  *
  * @author mrettig
  */
-class PoolFiber implements Fiber {
+class PoolFiber implements PriorityFiber {
 
-    private final SynchronizedQueue _queue = new SynchronizedQueue();
+    private final SynchronizedQueue _queue;
     private final Executor _flushExecutor;
     private final AtomicReference<ExecutionState> _started = new AtomicReference<ExecutionState>(ExecutionState.Created);
     private final BatchExecutor _commandExecutor;
@@ -28,8 +30,31 @@ class PoolFiber implements Fiber {
     private final SchedulerImpl _scheduler;
     private final Runnable _flushRunnable;
     private EventBuffer buffer = new EventBuffer();
+    private volatile Thread _flushThread;
 
     public PoolFiber(Executor pool, BatchExecutor executor, ScheduledExecutorService scheduler) {
+        this(pool, executor, scheduler, Integer.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Creates a fiber whose pending queue holds at most maxQueueSize events. The policy is applied to
+     * events that arrive once the queue is full. Events are not bounded until the fiber is started.
+     */
+    public PoolFiber(Executor pool, BatchExecutor executor, ScheduledExecutorService scheduler,
+                     int maxQueueSize, OverflowPolicy policy) {
+        this(pool, executor, scheduler, maxQueueSize, policy, null);
+    }
+
+    /**
+     * Creates a fiber that queues events in priority lanes. Higher lanes are executed first on each flush.
+     */
+    public PoolFiber(Executor pool, BatchExecutor executor, ScheduledExecutorService scheduler, PriorityLanes lanes) {
+        this(pool, executor, scheduler, Integer.MAX_VALUE, null, lanes);
+    }
+
+    private PoolFiber(Executor pool, BatchExecutor executor, ScheduledExecutorService scheduler,
+                      int maxQueueSize, OverflowPolicy policy, PriorityLanes lanes) {
+        _queue = new SynchronizedQueue(maxQueueSize, policy, lanes);
         _flushExecutor = pool;
         _commandExecutor = executor;
         _scheduler = new SchedulerImpl(this, scheduler);
@@ -41,47 +66,143 @@ class PoolFiber implements Fiber {
     }
 
     private class SynchronizedQueue {
+        private final int cap;
+        private final OverflowPolicy policy;
+        private final PriorityLanes lanes;
         private boolean running = false;
         private boolean flushPending = false;
         private EventBuffer queue = new EventBuffer();
 
+        private SynchronizedQueue(int cap, OverflowPolicy policy, PriorityLanes lanes) {
+            this.cap = cap;
+            this.policy = policy;
+            this.lanes = lanes;
+        }
+
+        private int size() {
+            return lanes != null ? lanes.size() : queue.size();
+        }
+
         private synchronized void setRunning(boolean newValue) {
             running = newValue;
+            notifyAll();
         }
 
-        private synchronized void put(Runnable r) {
-            queue.add(r);
+        /**
+         * @return Action that must be applied outside the lock. Null if the event was queued or dropped.
+         */
+        private synchronized OverflowPolicy.Action put(Runnable r, int priority) {
+            if (running && size() >= cap) {
+                switch (policy.getAction()) {
+                    case Block:
+                        if (Thread.currentThread() == _flushThread) {
+                            policy.acceptedOverCap();
+                        } else if (!awaitSpace()) {
+                            return running ? OverflowPolicy.Action.Reject : null;
+                        }
+                        break;
+                    case Reject:
+                    case HandOff:
+                        return policy.getAction();
+                    case DropNewest:
+                        policy.droppedNewest();
+                        return null;
+                    case DropOldest:
+                        if (lanes != null) {
+                            lanes.removeOldest();
+                        } else {
+                            queue.removeFirst();
+                        }
+                        policy.droppedOldest();
+                        break;
+                }
+            }
+            if (lanes != null) {
+                lanes.add(r, priority);
+            } else {
+                queue.add(r);
+            }
             if (running && !flushPending) {
                 _flushExecutor.execute(_flushRunnable);
                 flushPending = true;
             }
+            return null;
+        }
+
+        private boolean awaitSpace() {
+            policy.blocked();
+            long nanos = policy.getTimeoutNanos();
+            long deadline = System.nanoTime() + nanos;
+            while (size() >= cap && running) {
+                try {
+                    if (nanos == Long.MAX_VALUE) {
+                        wait();
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0)
+                            return false;
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return running;
         }
 
         private synchronized EventBuffer swap(EventBuffer buffer) {
-            if (queue.isEmpty() || !running) {
+            if (size() == 0 || !running) {
                 flushPending = false;
                 return null;
             }
-            EventBuffer toReturn = queue;
-            queue = buffer;
+            EventBuffer toReturn;
+            if (lanes != null) {
+                lanes.drainTo(buffer);
+                toReturn = buffer;
+            } else {
+                toReturn = queue;
+                queue = buffer;
+            }
+            if (policy != null) {
+                notifyAll();
+            }
             return toReturn;
         }
     }
 
     public void execute(Runnable commands) {
+        execute(commands, 0);
+    }
+
+    /**
+     * Priority is ignored unless the fiber was created with priority lanes.
+     */
+    public void execute(Runnable commands, int priority) {
         if (_started.get() == ExecutionState.Stopped) {
             return;
         }
-        _queue.put(commands);
+        OverflowPolicy.Action overflow = _queue.put(commands, priority);
+        if (overflow != null) {
+            if (overflow == OverflowPolicy.Action.HandOff) {
+                _queue.policy.handOff(commands);
+            } else {
+                _queue.policy.reject(commands);
+            }
+        }
     }
 
     private void flush() {
-        EventBuffer swap = _queue.swap(buffer);
-        while (swap != null) {
-            buffer = swap;
-            _commandExecutor.execute(buffer);
-            buffer.clear();
-            swap = _queue.swap(buffer);
+        _flushThread = Thread.currentThread();
+        try {
+            EventBuffer swap = _queue.swap(buffer);
+            while (swap != null) {
+                buffer = swap;
+                _commandExecutor.execute(buffer);
+                buffer.clear();
+                swap = _queue.swap(buffer);
+            }
+        } finally {
+            _flushThread = null;
         }
     }
 
@@ -3,16 +3,19 @@ package org.jetlang.fibers;
 import org.jetlang.core.BatchExecutor;
 import org.jetlang.core.BatchExecutorImpl;
 import org.jetlang.core.Disposable;
+import org.jetlang.core.OverflowPolicy;
+import org.jetlang.core.PriorityLanes;
 import org.jetlang.core.SchedulerImpl;
 import org.jetlang.core.SynchronousExecutor;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Factory that creates {@link Fiber} instances that share threads.
  */
-public class PoolFiberFactory implements Disposable {
+public class PoolFiberFactory implements FiberFactory, Disposable {
 
     private final ScheduledExecutorService _scheduler;
     private final Executor executor;
@@ -52,6 +55,52 @@ public class PoolFiberFactory implements Disposable {
         return new PoolFiber(this.executor, batchExecutor, _scheduler);
     }
 
+    /**
+     * Create a new Fiber from this pool with a bounded queue.
+     *
+     * @param batchExecutor Executor to use for command executor. Required.
+     * @param maxQueueSize  maximum number of pending events
+     * @param policy        applied to events that arrive when the queue is full. Required.
+     * @return Fiber instance
+     */
+    public Fiber create(BatchExecutor batchExecutor, int maxQueueSize, OverflowPolicy policy) {
+        return new PoolFiber(this.executor, batchExecutor, _scheduler, maxQueueSize, policy);
+    }
+
+    /**
+     * Create a new Fiber from this pool that executes higher priority events first.
+     *
+     * @param batchExecutor Executor to use for command executor. Required.
+     * @param laneCount     number of priorities
+     * @return Fiber instance
+     */
+    public PriorityFiber createPriorityFiber(BatchExecutor batchExecutor, int laneCount) {
+        return createPriorityFiber(batchExecutor, new PriorityLanes(laneCount));
+    }
+
+    /**
+     * Create a new Fiber from this pool that executes higher priority events first.
+     *
+     * @param batchExecutor Executor to use for command executor. Required.
+     * @param lanes         new, unshared lanes that hold pending events for the fiber
+     * @return Fiber instance
+     */
+    public PriorityFiber createPriorityFiber(BatchExecutor batchExecutor, PriorityLanes lanes) {
+        return new PoolFiber(this.executor, batchExecutor, _scheduler, lanes);
+    }
+
+    /**
+     * Create a new Fiber from this pool that moves to a dedicated thread while busy. Samples its load every
+     * 100 milliseconds.
+     *
+     * @param batchExecutor Executor to use for command executor. Required.
+     * @param policy        thresholds for moving between the pool and a dedicated thread
+     * @return Fiber instance
+     */
+    public AdaptiveFiber createAdaptive(BatchExecutor batchExecutor, AdaptiveFiber.Policy policy) {
+        return new AdaptiveFiber(this.executor, _scheduler, batchExecutor, policy, 100, TimeUnit.MILLISECONDS);
+    }
+
     public void dispose() {
         _scheduler.shutdown();
     }
@@ -0,0 +1,10 @@
+package org.jetlang.fibers;
+
+import org.jetlang.core.PriorityExecutor;
+
+/**
+ * Fiber that can execute events ahead of already queued events based upon priority. Events with the same
+ * priority are processed sequentially in the order queued.
+ */
+public interface PriorityFiber extends Fiber, PriorityExecutor {
+}
@@ -0,0 +1,392 @@
+package org.jetlang.fibers;
+
+import org.jetlang.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches child fibers and restarts those that stop making progress. At each check a heartbeat event is queued
+ * on every child. A child whose previous heartbeat has not run within the timeout is wedged or no longer
+ * draining its queue. A {@link ThreadFiber} whose thread has died fails at the next check. Nothing is added to
+ * the path of ordinary events.
+ *
+ * A failed child is disposed, which also disposes the subscriptions registered with it, and replaced by a new
+ * fiber from its factory. The child's {@link Initializer} then subscribes the new fiber before it is started.
+ * With {@link Strategy#OneForAll} every child is restarted when one fails. Restarts of a child that keeps
+ * failing are delayed by a backoff that doubles up to a maximum, and reset once it answers a heartbeat.
+ *
+ * Fibers are created, initialized and disposed outside the supervisor's lock, and heartbeats are queued and
+ * answered without it, so a slow {@link Initializer} or a wedged child cannot hold up the checks of other
+ * children. A child whose queue rejects a heartbeat has failed. Exceptions from a factory, initializer or
+ * dispose are passed to the {@link ErrorHandler} and the child is restarted at the next check, so the checks
+ * keep running.
+ */
+public class Supervisor implements Disposable {
+
+    public enum Strategy {
+        OneForOne, OneForAll
+    }
+
+    /**
+     * Sets up a child fiber, typically by subscribing it to channels. Called before each start of the child.
+     */
+    public interface Initializer {
+        void init(Fiber fiber);
+    }
+
+    public interface ErrorHandler {
+        void onError(Child child, RuntimeException failure);
+    }
+
+    private static final ErrorHandler UNCAUGHT = new ErrorHandler() {
+        public void onError(Child child, RuntimeException failure) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, failure);
+        }
+    };
+
+    private final ScheduledExecutorService _scheduler;
+    private final Strategy _strategy;
+    private final long _intervalNanos;
+    private final long _timeoutNanos;
+    private final long _initialBackoffNanos;
+    private final long _maxBackoffNanos;
+    private final ErrorHandler _errors;
+    private final List<Child> _children = new ArrayList<Child>();
+    private ScheduledFuture<?> _watchdog;
+    private boolean _disposed;
+
+    /**
+     * @param scheduler      runs the checks and delayed restarts
+     * @param interval       time between checks
+     * @param timeout        time a heartbeat may wait in a child's queue
+     * @param initialBackoff delay before the second consecutive restart of a child. The first is immediate.
+     * @param maxBackoff     longest delay between restarts
+     * @param errors         receives failures to restart a child
+     */
+    public Supervisor(ScheduledExecutorService scheduler, Strategy strategy, long interval, long timeout,
+                      long initialBackoff, long maxBackoff, TimeUnit unit, ErrorHandler errors) {
+        _scheduler = scheduler;
+        _errors = errors;
+        _strategy = strategy;
+        _intervalNanos = unit.toNanos(interval);
+        _timeoutNanos = unit.toNanos(timeout);
+        _initialBackoffNanos = unit.toNanos(initialBackoff);
+        _maxBackoffNanos = unit.toNanos(maxBackoff);
+    }
+
+    /**
+     * Creates a supervisor that passes failures to the uncaught exception handler of the thread running the check.
+     */
+    public Supervisor(ScheduledExecutorService scheduler, Strategy strategy, long interval, long timeout,
+                      long initialBackoff, long maxBackoff, TimeUnit unit) {
+        this(scheduler, strategy, interval, timeout, initialBackoff, maxBackoff, unit, UNCAUGHT);
+    }
+
+    /**
+     * Creates, initializes and starts a child.
+     *
+     * @param name identifies the child
+     */
+    public Child supervise(String name, FiberFactory fibers, Initializer init) {
+        synchronized (this) {
+            if (_disposed) {
+                throw new IllegalStateException("Supervisor disposed");
+            }
+        }
+        Child child = new Child(name, fibers, init);
+        Fiber fiber = child.create();
+        synchronized (this) {
+            if (!_disposed) {
+                child.launch(fiber);
+                _children.add(child);
+                return child;
+            }
+        }
+        fiber.dispose();
+        throw new IllegalStateException("Supervisor disposed");
+    }
+
+    /**
+     * Starts checking the children.
+     */
+    public synchronized void start() {
+        _watchdog = _scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                check();
+            }
+        }, _intervalNanos, _intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Checks each child and restarts those that failed. Which children to restart or send a heartbeat is decided
+     * under the lock; heartbeats are queued and restarts run after it is released.
+     */
+    void check() {
+        List<Child> toRestart = new ArrayList<Child>();
+        List<Heartbeat> beats = new ArrayList<Heartbeat>();
+        synchronized (this) {
+            if (_disposed) {
+                return;
+            }
+            long now = System.nanoTime();
+            List<Child> failed = new ArrayList<Child>();
+            for (Child child : _children) {
+                if (!child._restarting && child.hasFailed(now)) {
+                    failed.add(child);
+                }
+            }
+            if (failed.isEmpty()) {
+                for (Child child : _children) {
+                    if (!child._restarting) {
+                        Heartbeat beat = child.beat(now);
+                        if (beat != null) {
+                            beats.add(beat);
+                        }
+                    }
+                }
+            } else {
+                for (Child child : _strategy == Strategy.OneForAll ? _children : failed) {
+                    if (!child._restarting) {
+                        child._restarting = true;
+                        toRestart.add(child);
+                    }
+                }
+            }
+        }
+        for (Heartbeat beat : beats) {
+            beat.send();
+        }
+        for (Child child : toRestart) {
+            child.restart();
+        }
+    }
+
+    public synchronized List<Child> getChildren() {
+        return new ArrayList<Child>(_children);
+    }
+
+    /**
+     * Stops checking and disposes every child.
+     */
+    public void dispose() {
+        List<Fiber> fibers = new ArrayList<Fiber>();
+        synchronized (this) {
+            _disposed = true;
+            if (_watchdog != null) {
+                _watchdog.cancel(false);
+            }
+            for (Child child : _children) {
+                fibers.add(child._fiber);
+            }
+        }
+        for (Fiber fiber : fibers) {
+            fiber.dispose();
+        }
+    }
+
+    /**
+     * Supervised fiber. The fiber is replaced on each restart.
+     */
+    public class Child {
+        private final String _name;
+        private final FiberFactory _fibers;
+        private final Initializer _init;
+        private final AtomicLong _answered = new AtomicLong();
+        private volatile Fiber _fiber;
+        private volatile long _restarts;
+        private boolean _restarting;
+        private boolean _failed;
+        private long _lastBeat;
+        private long _awaiting;
+        private long _sentAt;
+        private int _consecutiveFailures;
+
+        private Child(String name, FiberFactory fibers, Initializer init) {
+            _name = name;
+            _fibers = fibers;
+            _init = init;
+        }
+
+        public String getName() {
+            return _name;
+        }
+
+        /**
+         * @return the current fiber of the child
+         */
+        public Fiber getFiber() {
+            return _fiber;
+        }
+
+        public long getRestartCount() {
+            return _restarts;
+        }
+
+        /**
+         * Runs the factory and initializer. Called without the supervisor's lock.
+         */
+        private Fiber create() {
+            Fiber fiber = _fibers.create();
+            _init.init(fiber);
+            return fiber;
+        }
+
+        /**
+         * Makes the fiber current and starts it. Called with the supervisor's lock held.
+         */
+        private void launch(Fiber fiber) {
+            // heartbeats sent to the previous fiber no longer count
+            _awaiting = 0;
+            _restarting = false;
+            _failed = false;
+            _fiber = fiber;
+            fiber.start();
+        }
+
+        private boolean hasFailed(long now) {
+            if (_failed) {
+                return true;
+            }
+            Fiber fiber = _fiber;
+            if (fiber instanceof ThreadFiber && !((ThreadFiber) fiber).getThread().isAlive()) {
+                return true;
+            }
+            return isOutstanding() && now - _sentAt > _timeoutNanos;
+        }
+
+        private boolean isOutstanding() {
+            return _awaiting != 0 && _answered.get() < _awaiting;
+        }
+
+        /**
+         * Numbers the next heartbeat. Called with the supervisor's lock held.
+         *
+         * @return the heartbeat to queue once the lock is released, or null if the last one is still outstanding
+         */
+        private Heartbeat beat(long now) {
+            if (isOutstanding()) {
+                return null;
+            }
+            if (_awaiting != 0) {
+                _consecutiveFailures = 0;
+            }
+            long beat = ++_lastBeat;
+            _awaiting = beat;
+            _sentAt = now;
+            return new Heartbeat(this, _fiber, beat);
+        }
+
+        /**
+         * Runs on the child's fiber. Beats are numbered in the order sent, so an answer from a replaced fiber is
+         * older than any beat sent to the current one and never counts for it.
+         */
+        private void onBeat(long beat) {
+            long answered;
+            while ((answered = _answered.get()) < beat && !_answered.compareAndSet(answered, beat)) {
+            }
+        }
+
+        /**
+         * Disposes the fiber and launches a new one, now or after the backoff. Called without the supervisor's
+         * lock, with {@link #_restarting} set so checks leave the child alone meanwhile.
+         */
+        private void restart() {
+            try {
+                _fiber.dispose();
+            } catch (RuntimeException e) {
+                _errors.onError(this, e);
+            }
+            long backoff;
+            synchronized (Supervisor.this) {
+                backoff = _consecutiveFailures == 0 ? 0
+                        : Math.min(_maxBackoffNanos, _initialBackoffNanos << Math.min(_consecutiveFailures - 1, 30));
+                _consecutiveFailures++;
+                _restarts++;
+            }
+            if (backoff <= 0) {
+                relaunch();
+                return;
+            }
+            _scheduler.schedule(new Runnable() {
+                public void run() {
+                    relaunch();
+                }
+            }, backoff, TimeUnit.NANOSECONDS);
+        }
+
+        private void relaunch() {
+            synchronized (Supervisor.this) {
+                if (_disposed) {
+                    return;
+                }
+            }
+            Fiber fiber;
+            try {
+                fiber = create();
+            } catch (RuntimeException e) {
+                // restarted again, after the backoff, at the next check
+                synchronized (Supervisor.this) {
+                    _restarting = false;
+                    _failed = true;
+                }
+                _errors.onError(this, e);
+                return;
+            }
+            synchronized (Supervisor.this) {
+                if (!_disposed) {
+                    launch(fiber);
+                    return;
+                }
+            }
+            fiber.dispose();
+        }
+
+        @Override
+        public String toString() {
+            return "Child(" + _name + ", restarts=" + _restarts + ")";
+        }
+    }
+
+    private class Heartbeat implements Runnable {
+        private final Child _child;
+        private final Fiber _fiber;
+        private final long _beat;
+
+        private Heartbeat(Child child, Fiber fiber, long beat) {
+            _child = child;
+            _fiber = fiber;
+            _beat = beat;
+        }
+
+        /**
+         * Queues the heartbeat on the child's fiber. Called without the supervisor's lock, since a bounded queue may
+         * block. A queue that rejects the heartbeat fails the child.
+         */
+        private void send() {
+            try {
+                _fiber.execute(this);
+            } catch (RuntimeException e) {
+                synchronized (Supervisor.this) {
+                    if (_child._fiber == _fiber) {
+                        _child._failed = true;
+                    }
+                }
+            }
+        }
+
+        public void run() {
+            _child.onBeat(_beat);
+        }
+
+        @Override
+        public String toString() {
+            return "Heartbeat " + _child._name;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.jetlang.fibers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pins threads to CPUs on Linux. Threads are identified by their kernel thread id, read from /proc, and pinned
+ * with the taskset utility, so no native library is required. Elsewhere pinning does nothing and returns false.
+ *
+ * taskset is part of util-linux and must be on the PATH. Each pin forks a taskset process, which costs on the
+ * order of milliseconds, so pin long lived threads once as they start rather than per task. If taskset cannot
+ * be run, pinning returns false and is not attempted again.
+ *
+ * Pinning only keeps a thread on its CPUs. Keeping other work off those CPUs, for example with the isolcpus
+ * kernel parameter, is configured outside the JVM.
+ */
+public final class ThreadAffinity {
+
+    private static final File THREAD_SELF = new File("/proc/thread-self");
+    private static volatile boolean tasksetMissing;
+
+    private ThreadAffinity() {
+    }
+
+    /**
+     * @return true if threads can be identified and pinned on this platform
+     */
+    public static boolean isSupported() {
+        return System.getProperty("os.name", "").toLowerCase().startsWith("linux") && THREAD_SELF.exists();
+    }
+
+    /**
+     * @return kernel id of the calling thread, or -1 if not supported
+     */
+    public static int currentThreadId() {
+        if (!isSupported()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(THREAD_SELF.getCanonicalFile().getName());
+        } catch (IOException e) {
+            return -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Restricts the calling thread to the CPUs given.
+     *
+     * @param cpuList CPUs in the kernel's list format, e.g. "3" or "2-3,6"
+     * @return true if the thread was pinned
+     */
+    public static boolean pinCurrentThread(String cpuList) {
+        if (tasksetMissing) {
+            return false;
+        }
+        int tid = currentThreadId();
+        if (tid < 0) {
+            return false;
+        }
+        ProcessBuilder builder = new ProcessBuilder("taskset", "-p", "-c", cpuList, String.valueOf(tid));
+        builder.redirectErrorStream(true);
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            tasksetMissing = true;
+            return false;
+        }
+        try {
+            drain(process);
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void drain(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        try {
+            while (reader.readLine() != null) {
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Wraps a thread factory so that each thread pins itself before running. Used to pin the thread of a
+     * scheduler, e.g. with {@link org.jetlang.core.SchedulerImpl#createSchedulerThatIgnoresEventsAfterStop(ThreadFactory)}.
+     */
+    public static ThreadFactory pinning(final ThreadFactory factory, final String cpuList) {
+        return new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                return factory.newThread(new Runnable() {
+                    public void run() {
+                        pinCurrentThread(cpuList);
+                        r.run();
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Reads where a thread of this process is allowed to run and where it last ran.
+     *
+     * @return null if the thread no longer exists or the platform is not supported
+     */
+    public static Placement placementOf(int tid) {
+        if (tid < 0 || !isSupported()) {
+            return null;
+        }
+        String task = "/proc/self/task/" + tid + "/";
+        try {
+            String allowed = null;
+            for (String line : readLines(task + "status")) {
+                if (line.startsWith("Cpus_allowed_list:")) {
+                    allowed = line.substring(line.indexOf(':') + 1).trim();
+                }
+            }
+            String stat = readLines(task + "stat").get(0);
+            // fields after the command name, which may contain spaces; the processor is field 39
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            int lastCpu = Integer.parseInt(fields[36]);
+            return new Placement(tid, allowed, lastCpu, nodeOfCpu(lastCpu));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return CPUs of a NUMA node in the kernel's list format, or null if the node is unknown
+     */
+    public static String cpusOfNode(int node) {
+        try {
+            return readLines("/sys/devices/system/node/node" + node + "/cpulist").get(0).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return NUMA node of a CPU, or -1 if unknown
+     */
+    public static int nodeOfCpu(int cpu) {
+        File[] nodes = new File("/sys/devices/system/node").listFiles();
+        if (nodes == null) {
+            return -1;
+        }
+        for (File dir : nodes) {
+            String name = dir.getName();
+            if (name.startsWith("node") && name.length() > 4 && Character.isDigit(name.charAt(4))) {
+                int node = Integer.parseInt(name.substring(4));
+                String cpus = cpusOfNode(node);
+                if (cpus != null && parseCpuList(cpus).contains(cpu)) {
+                    return node;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Expands a CPU list such as "0-2,5" to [0, 1, 2, 5].
+     */
+    public static List<Integer> parseCpuList(String cpuList) {
+        List<Integer> cpus = new ArrayList<Integer>();
+        for (String range : cpuList.trim().split(",")) {
+            if (range.length() == 0) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            if (dash < 0) {
+                cpus.add(Integer.parseInt(range.trim()));
+            } else {
+                int last = Integer.parseInt(range.substring(dash + 1).trim());
+                for (int cpu = Integer.parseInt(range.substring(0, dash).trim()); cpu <= last; cpu++) {
+                    cpus.add(cpu);
+                }
+            }
+        }
+        return cpus;
+    }
+
+    private static List<String> readLines(String path) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(path));
+        try {
+            List<String> lines = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Where a thread was found running.
+     */
+    public static class Placement {
+        private final int threadId;
+        private final String allowedCpus;
+        private final int lastCpu;
+        private final int node;
+
+        private Placement(int threadId, String allowedCpus, int lastCpu, int node) {
+            this.threadId = threadId;
+            this.allowedCpus = allowedCpus;
+            this.lastCpu = lastCpu;
+            this.node = node;
+        }
+
+        public int getThreadId() {
+            return threadId;
+        }
+
+        /**
+         * @return CPUs the thread may run on, in the kernel's list format
+         */
+        public String getAllowedCpus() {
+            return allowedCpus;
+        }
+
+        /**
+         * @return CPU the thread last ran on
+         */
+        public int getLastCpu() {
+            return lastCpu;
+        }
+
+        /**
+         * @return NUMA node of the last CPU, or -1 if unknown
+         */
+        public int getNode() {
+            return node;
+        }
+
+        @Override
+        public String toString() {
+            return "tid=" + threadId + " allowed=" + allowedCpus + " lastCpu=" + lastCpu + " node=" + node;
+        }
+    }
+}
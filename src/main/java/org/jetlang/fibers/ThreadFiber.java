@@ -1,21 +1,27 @@
 package org.jetlang.fibers;
 
 import org.jetlang.core.Disposable;
+import org.jetlang.core.PriorityExecutor;
 import org.jetlang.core.RunnableExecutor;
 import org.jetlang.core.RunnableExecutorImpl;
 import org.jetlang.core.Scheduler;
 import org.jetlang.core.SchedulerImpl;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Fiber implementation backed by a dedicated thread for execution.
  */
-public class ThreadFiber implements Fiber {
+public class ThreadFiber implements PriorityFiber {
 
     private final Thread _thread;
     private final RunnableExecutor _queue;
+    private final PriorityExecutor _priorityQueue;
     private final Scheduler _scheduler;
+    private volatile String _cpuList;
+    private volatile boolean _pinned;
+    private volatile int _threadId = -1;
 
     /**
      * Create thread backed fiber
@@ -27,8 +33,14 @@ public class ThreadFiber implements Fiber {
      */
     public ThreadFiber(RunnableExecutor queue, String threadName, boolean isDaemonThread, Scheduler scheduler) {
         _queue = queue;
+        _priorityQueue = queue instanceof PriorityExecutor ? (PriorityExecutor) queue : null;
         Runnable runThread = new Runnable() {
             public void run() {
+                String cpus = _cpuList;
+                if (cpus != null) {
+                    _threadId = ThreadAffinity.currentThreadId();
+                    _pinned = ThreadAffinity.pinCurrentThread(cpus);
+                }
                 _queue.run();
             }
         };
@@ -56,6 +68,55 @@ public class ThreadFiber implements Fiber {
         return _thread;
     }
 
+    /**
+     * Pins the fiber's thread to the CPUs given when it starts. Only supported on Linux.
+     *
+     * @param cpuList CPUs in the kernel's list format, e.g. "3" or "2-3,6"
+     * @see ThreadAffinity
+     */
+    public ThreadFiber pinTo(String cpuList) {
+        if (_thread.isAlive()) {
+            throw new IllegalStateException("Fiber already started");
+        }
+        _cpuList = cpuList;
+        return this;
+    }
+
+    /**
+     * @return true once the started thread has been pinned
+     */
+    public boolean isPinned() {
+        return _pinned;
+    }
+
+    /**
+     * The thread id of an unpinned fiber is looked up on the fiber the first time this is called, waiting up to a
+     * second for the fiber to run it.
+     *
+     * @return where the fiber's thread is running, or null if not started, busy or not supported
+     */
+    public ThreadAffinity.Placement getPlacement() {
+        if (_threadId < 0 && _thread.isAlive()) {
+            if (Thread.currentThread() == _thread) {
+                _threadId = ThreadAffinity.currentThreadId();
+            } else {
+                final CountDownLatch read = new CountDownLatch(1);
+                execute(new Runnable() {
+                    public void run() {
+                        _threadId = ThreadAffinity.currentThreadId();
+                        read.countDown();
+                    }
+                });
+                try {
+                    read.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return ThreadAffinity.placementOf(_threadId);
+    }
+
     /**
      * Queue runnable for execution on this fiber.
      */
@@ -63,6 +124,18 @@ public class ThreadFiber implements Fiber {
         _queue.execute(command);
     }
 
+    /**
+     * Queue runnable with a priority. The priority is ignored unless the queue supports priorities
+     * (e.g. {@link RunnableExecutorImpl} with a {@link org.jetlang.core.PriorityEventQueue}).
+     */
+    public void execute(Runnable command, int priority) {
+        if (_priorityQueue != null) {
+            _priorityQueue.execute(command, priority);
+        } else {
+            _queue.execute(command);
+        }
+    }
+
     public void add(Disposable runOnStop) {
         _queue.add(runOnStop);
     }
@@ -0,0 +1,127 @@
+package org.jetlang.fibers;
+
+import org.jetlang.core.RunnableExecutorImpl;
+import org.jetlang.core.SchedulerImpl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Assigns named fibers to CPUs or NUMA nodes and reports where they actually run. Fibers created from the layout
+ * are pinned when started. A fiber's scheduler thread is pinned when "&lt;name&gt;.scheduler" is assigned too,
+ * otherwise it is left to the operating system.
+ *
+ * <pre>
+ * ThreadLayout layout = new ThreadLayout()
+ *     .assign("marketData", "2")
+ *     .assign("marketData.scheduler", "3")
+ *     .assignNode("risk", 1);
+ * ThreadFiber fiber = layout.createFiber("marketData");
+ * </pre>
+ */
+public class ThreadLayout {
+
+    private final Map<String, String> _cpus = new LinkedHashMap<String, String>();
+    private final Map<String, ThreadFiber> _fibers = new LinkedHashMap<String, ThreadFiber>();
+
+    /**
+     * @param cpuList CPUs in the kernel's list format, e.g. "3" or "2-3,6"
+     */
+    public synchronized ThreadLayout assign(String name, String cpuList) {
+        _cpus.put(name, cpuList);
+        return this;
+    }
+
+    /**
+     * Assigns every CPU of a NUMA node.
+     *
+     * @throws IllegalArgumentException if the node does not exist
+     */
+    public ThreadLayout assignNode(String name, int node) {
+        String cpus = ThreadAffinity.cpusOfNode(node);
+        if (cpus == null) {
+            throw new IllegalArgumentException("Unknown NUMA node: " + node);
+        }
+        return assign(name, cpus);
+    }
+
+    /**
+     * @return CPUs assigned to the name, or null if unassigned
+     */
+    public synchronized String cpusFor(String name) {
+        return _cpus.get(name);
+    }
+
+    /**
+     * Creates a daemon fiber named after its assignment. An unassigned fiber is created unpinned.
+     */
+    public synchronized ThreadFiber createFiber(String name) {
+        RunnableExecutorImpl queue = new RunnableExecutorImpl();
+        String schedulerCpus = _cpus.get(name + ".scheduler");
+        ThreadFiber fiber;
+        if (schedulerCpus == null) {
+            fiber = new ThreadFiber(queue, name, true);
+        } else {
+            ThreadFactory factory = ThreadAffinity.pinning(new ThreadFactory() {
+                private final ThreadFactory _default = Executors.defaultThreadFactory();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = _default.newThread(r);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, schedulerCpus);
+            fiber = new ThreadFiber(queue, name, true,
+                    new SchedulerImpl(queue, SchedulerImpl.createSchedulerThatIgnoresEventsAfterStop(factory)));
+        }
+        String cpus = _cpus.get(name);
+        if (cpus != null) {
+            fiber.pinTo(cpus);
+        }
+        _fibers.put(name, fiber);
+        return fiber;
+    }
+
+    /**
+     * @return one line per created fiber comparing its assignment with where it was last seen running
+     */
+    public synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, ThreadFiber> entry : _fibers.entrySet()) {
+            String name = entry.getKey();
+            String cpus = _cpus.get(name);
+            ThreadAffinity.Placement placement = entry.getValue().getPlacement();
+            report.append(name).append(": assigned=").append(cpus != null ? cpus : "any");
+            if (placement == null) {
+                report.append(" placement unknown");
+            } else {
+                report.append(' ').append(placement);
+                if (cpus != null && !ThreadAffinity.parseCpuList(cpus).contains(placement.getLastCpu())) {
+                    report.append(" MISPLACED");
+                }
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return names of fibers created from the layout that are not running on their assigned CPUs
+     */
+    public synchronized List<String> misplaced() {
+        List<String> misplaced = new ArrayList<String>();
+        for (Map.Entry<String, ThreadFiber> entry : _fibers.entrySet()) {
+            String cpus = _cpus.get(entry.getKey());
+            ThreadAffinity.Placement placement = entry.getValue().getPlacement();
+            if (cpus != null && placement != null
+                    && !ThreadAffinity.parseCpuList(cpus).contains(placement.getLastCpu())) {
+                misplaced.add(entry.getKey());
+            }
+        }
+        return misplaced;
+    }
+}
@@ -0,0 +1,208 @@
+package org.jetlang.remote;
+
+import org.jetlang.channels.Publisher;
+import org.jetlang.core.BatchExecutorImpl;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.RunnableExecutorImpl;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Extends channels across processes over TCP. A bridge is a group of connections served by one selector fiber,
+ * a {@link ThreadFiber} that waits on a NIO selector rather than a condition. Socket reads, writes and inbound
+ * dispatch all run on that fiber.
+ *
+ * Inbound messages are routed by topic id to local publishers, typically a {@link org.jetlang.channels.MemoryChannel},
+ * so existing subscribers are unchanged. Outbound messages are sent with {@link NioConnection#send} or forwarded
+ * from a local channel with {@link NioConnection#forward}.
+ */
+public class NioChannelBridge implements Disposable {
+
+    private final Selector _selector;
+    private final ThreadFiber _fiber;
+    private final int _bufferSize;
+    private final ConcurrentHashMap<Integer, Route<?>> _routes = new ConcurrentHashMap<Integer, Route<?>>();
+
+    /**
+     * @param bufferSize size of the direct read and write buffers of each connection. Limits the largest frame.
+     */
+    public NioChannelBridge(int bufferSize) throws IOException {
+        _selector = Selector.open();
+        _bufferSize = bufferSize;
+        RunnableExecutorImpl queue = new RunnableExecutorImpl(new BatchExecutorImpl(), new SelectorEventQueue(_selector));
+        _fiber = new ThreadFiber(queue, "NioChannelBridge", true);
+    }
+
+    public NioChannelBridge() throws IOException {
+        this(64 * 1024);
+    }
+
+    public void start() {
+        _fiber.start();
+    }
+
+    /**
+     * @return the selector fiber. Useful for scheduling, but events run here delay socket io for every connection.
+     */
+    public Fiber getFiber() {
+        return _fiber;
+    }
+
+    /**
+     * Publishes messages received on any connection for the topic to the target.
+     *
+     * @return Disposable that removes the route
+     */
+    public <T> Disposable route(RemoteTopic<T> topic, Publisher<T> target) {
+        final Integer id = topic.getId();
+        final Route<T> route = new Route<T>(topic, target);
+        if (_routes.putIfAbsent(id, route) != null) {
+            throw new IllegalStateException("Topic already routed: " + topic);
+        }
+        return new Disposable() {
+            public void dispose() {
+                _routes.remove(id, route);
+            }
+        };
+    }
+
+    /**
+     * Accepts connections on the address. Use port 0 for an ephemeral port.
+     *
+     * @param onAccept called on the selector fiber for each accepted connection
+     * @return the bound address
+     */
+    public InetSocketAddress listen(InetSocketAddress address, final Callback<NioConnection> onAccept) throws IOException {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(address);
+        server.configureBlocking(false);
+        final Disposable closer = new Disposable() {
+            public void dispose() {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    // closing
+                }
+                _fiber.remove(this);
+            }
+        };
+        _fiber.add(closer);
+        _fiber.execute(new Runnable() {
+            public void run() {
+                try {
+                    server.register(_selector, SelectionKey.OP_ACCEPT, new Runnable() {
+                        public void run() {
+                            accept(server, onAccept, closer);
+                        }
+                    });
+                } catch (IOException e) {
+                    closer.dispose();
+                } catch (ClosedSelectorException e) {
+                    closer.dispose();
+                }
+            }
+        });
+        return (InetSocketAddress) server.socket().getLocalSocketAddress();
+    }
+
+    private void accept(ServerSocketChannel server, Callback<NioConnection> onAccept, Disposable closer) {
+        SocketChannel socket;
+        try {
+            socket = server.accept();
+        } catch (IOException e) {
+            closer.dispose();
+            return;
+        }
+        if (socket != null) {
+            onAccept.onMessage(register(socket));
+        }
+    }
+
+    /**
+     * Opens a connection. Blocks until the connection is established.
+     */
+    public NioConnection connect(InetSocketAddress address) throws IOException {
+        return register(SocketChannel.open(address));
+    }
+
+    private NioConnection register(SocketChannel socket) {
+        try {
+            socket.configureBlocking(false);
+            socket.socket().setTcpNoDelay(true);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        final NioConnection connection = new NioConnection(this, socket, _bufferSize);
+        _fiber.add(connection);
+        _fiber.execute(new Runnable() {
+            public void run() {
+                connection.register(_selector);
+            }
+        });
+        return connection;
+    }
+
+    void remove(NioConnection connection) {
+        _fiber.remove(connection);
+    }
+
+    boolean isSelectorThread() {
+        return Thread.currentThread() == _fiber.getThread();
+    }
+
+    boolean isSelectorOpen() {
+        return _selector.isOpen();
+    }
+
+    void dispatch(int topicId, ByteBuffer frame) {
+        Route<?> route = _routes.get(topicId);
+        if (route != null) {
+            route.publish(frame);
+        }
+    }
+
+    /**
+     * Closes every connection and listener and stops the selector fiber. Unless called on the selector fiber,
+     * waits for the fiber's thread to exit before closing the selector.
+     */
+    public void dispose() {
+        _fiber.dispose();
+        if (!isSelectorThread()) {
+            try {
+                _fiber.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            _selector.close();
+        } catch (IOException e) {
+            // closing
+        }
+    }
+
+    private static class Route<T> {
+        private final RemoteTopic<T> topic;
+        private final Publisher<T> target;
+
+        private Route(RemoteTopic<T> topic, Publisher<T> target) {
+            this.topic = topic;
+            this.target = target;
+        }
+
+        private void publish(ByteBuffer frame) {
+            target.publish(topic.getCodec().decode(frame));
+        }
+    }
+}
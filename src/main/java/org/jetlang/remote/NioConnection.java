@@ -0,0 +1,338 @@
+package org.jetlang.remote;
+
+import org.jetlang.channels.Subscriber;
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.SynchronousDisposingExecutor;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection of a {@link NioChannelBridge}.
+ *
+ * Frames are an int length, an int topic id and the encoded message. Senders encode directly into a direct
+ * buffer that is written to the socket in one call by the selector fiber, so messages sent while a write is
+ * pending are coalesced. Two buffers alternate between senders and the socket. When both are full, senders
+ * block until the socket is writable again; memory never grows with a slow peer. The one exception is
+ * {@link #forward} publishing on the selector fiber, which cannot block, so its messages are queued until the
+ * socket drains.
+ */
+public class NioConnection implements Disposable {
+
+    private static final int HEADER_SIZE = 8;
+
+    private final NioChannelBridge _bridge;
+    private final SocketChannel _socket;
+    private final Lock _lock = new ReentrantLock();
+    private final Condition _writable = _lock.newCondition();
+    private final ByteBuffer _read;
+    private final ByteBuffer _frame;
+    private final Runnable _flushRunnable;
+    // messages forwarded on the selector fiber while both buffers were full
+    private final ArrayDeque<Deferred<?>> _deferred = new ArrayDeque<Deferred<?>>();
+    private ByteBuffer _pending;
+    private ByteBuffer _writing;
+    private boolean _flushScheduled;
+    private boolean _closed;
+    private SelectionKey _key;
+
+    NioConnection(NioChannelBridge bridge, SocketChannel socket, int bufferSize) {
+        _bridge = bridge;
+        _socket = socket;
+        _read = ByteBuffer.allocateDirect(bufferSize);
+        _frame = _read.duplicate();
+        _pending = ByteBuffer.allocateDirect(bufferSize);
+        _writing = ByteBuffer.allocateDirect(bufferSize);
+        _writing.limit(0);
+        _flushRunnable = new Runnable() {
+            public void run() {
+                flush();
+            }
+
+            @Override
+            public String toString() {
+                return "Flushing " + NioConnection.this;
+            }
+        };
+    }
+
+    void register(Selector selector) {
+        Runnable onSelect = new Runnable() {
+            public void run() {
+                onSelect();
+            }
+        };
+        try {
+            _key = _socket.register(selector, SelectionKey.OP_READ, onSelect);
+        } catch (IOException e) {
+            dispose();
+        } catch (ClosedSelectorException e) {
+            dispose();
+        }
+    }
+
+    /**
+     * Queues the message for sending. Can be called from any thread other than the selector fiber. Blocks
+     * while the write buffers are full. Messages sent after the connection closes are discarded.
+     *
+     * @throws IllegalArgumentException if the encoded message does not fit in the write buffer
+     */
+    public <T> void send(RemoteTopic<T> topic, T msg) {
+        _lock.lock();
+        try {
+            while (!_closed) {
+                if (tryEncode(topic, msg)) {
+                    scheduleFlush();
+                    return;
+                }
+                if (_pending.position() == 0) {
+                    throw new IllegalArgumentException("Message exceeds buffer size: " + msg);
+                }
+                if (_bridge.isSelectorThread()) {
+                    throw new IllegalStateException("Blocking send on the selector fiber");
+                }
+                scheduleFlush();
+                try {
+                    _writable.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private <T> boolean tryEncode(RemoteTopic<T> topic, T msg) {
+        int start = _pending.position();
+        return _pending.remaining() > HEADER_SIZE && encode(topic, msg, start);
+    }
+
+    private <T> boolean encode(RemoteTopic<T> topic, T msg, int start) {
+        boolean encoded = false;
+        try {
+            _pending.position(start + HEADER_SIZE);
+            topic.getCodec().encode(msg, _pending);
+            _pending.putInt(start, _pending.position() - start - 4);
+            _pending.putInt(start + 4, topic.getId());
+            encoded = true;
+        } catch (BufferOverflowException e) {
+            // waits for the next buffer
+        } finally {
+            if (!encoded) {
+                _pending.position(start);
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Sends every message published to the channel. Messages are encoded on the publishing thread. Publishers
+     * block while the write buffers are full, except on the selector fiber where messages are queued instead.
+     *
+     * @return Disposable that stops forwarding
+     */
+    public <T> Disposable forward(Subscriber<T> channel, final RemoteTopic<T> topic) {
+        Callback<T> onMsg = new Callback<T>() {
+            public void onMessage(T message) {
+                if (_bridge.isSelectorThread()) {
+                    sendOrDefer(topic, message);
+                } else {
+                    send(topic, message);
+                }
+            }
+        };
+        return channel.subscribe(new SynchronousDisposingExecutor(), onMsg);
+    }
+
+    private <T> void sendOrDefer(RemoteTopic<T> topic, T msg) {
+        _lock.lock();
+        try {
+            if (_closed) {
+                return;
+            }
+            if (_deferred.isEmpty()) {
+                if (tryEncode(topic, msg)) {
+                    scheduleFlush();
+                    return;
+                }
+                if (_pending.position() == 0) {
+                    throw new IllegalArgumentException("Message exceeds buffer size: " + msg);
+                }
+            }
+            _deferred.addLast(new Deferred<T>(topic, msg));
+            scheduleFlush();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes queued messages into the emptied buffer. Called under the lock on the selector fiber.
+     */
+    private void encodeDeferred() {
+        while (!_deferred.isEmpty()) {
+            Deferred<?> next = _deferred.peekFirst();
+            if (!next.encode()) {
+                if (_pending.position() > 0) {
+                    return;
+                }
+                // larger than the buffer. send would have thrown.
+            }
+            _deferred.pollFirst();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!_flushScheduled) {
+            _flushScheduled = true;
+            _bridge.getFiber().execute(_flushRunnable);
+        }
+    }
+
+    private void flush() {
+        _lock.lock();
+        try {
+            if (_closed) {
+                return;
+            }
+            if (!_writing.hasRemaining()) {
+                ByteBuffer filled = _pending;
+                _pending = _writing;
+                _pending.clear();
+                _writing = filled;
+                _writing.flip();
+                encodeDeferred();
+                _writable.signalAll();
+            }
+        } finally {
+            _lock.unlock();
+        }
+        try {
+            _socket.write(_writing);
+        } catch (IOException e) {
+            dispose();
+            return;
+        }
+        _lock.lock();
+        try {
+            if (_closed || !_key.isValid()) {
+                return;
+            }
+            if (_writing.hasRemaining()) {
+                // resumed by onSelect when the socket drains
+                _key.interestOps(_key.interestOps() | SelectionKey.OP_WRITE);
+            } else if (_pending.position() > 0) {
+                _bridge.getFiber().execute(_flushRunnable);
+            } else {
+                _flushScheduled = false;
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private void onSelect() {
+        if (!_key.isValid()) {
+            return;
+        }
+        if (_key.isReadable()) {
+            read();
+        }
+        if (_key.isValid() && _key.isWritable()) {
+            _key.interestOps(_key.interestOps() & ~SelectionKey.OP_WRITE);
+            flush();
+        }
+    }
+
+    private void read() {
+        int count;
+        try {
+            count = _socket.read(_read);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            dispose();
+            return;
+        }
+        _read.flip();
+        while (_read.remaining() >= 4) {
+            int start = _read.position();
+            int length = _read.getInt(start);
+            if (length < 4 || length > _read.capacity() - 4) {
+                dispose();
+                return;
+            }
+            if (_read.remaining() < length + 4) {
+                break;
+            }
+            _frame.limit(start + 4 + length);
+            _frame.position(start + HEADER_SIZE);
+            _bridge.dispatch(_read.getInt(start + 4), _frame);
+            _read.position(start + 4 + length);
+        }
+        _read.compact();
+    }
+
+    public boolean isClosed() {
+        _lock.lock();
+        try {
+            return _closed;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the socket. Pending outbound messages are discarded and blocked senders are released.
+     */
+    public void dispose() {
+        _lock.lock();
+        try {
+            if (_closed) {
+                return;
+            }
+            _closed = true;
+            _deferred.clear();
+            _writable.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+        try {
+            _socket.close();
+        } catch (IOException e) {
+            // closing
+        }
+        _bridge.remove(this);
+    }
+
+    @Override
+    public String toString() {
+        return "NioConnection(" + _socket + ")";
+    }
+
+    private final class Deferred<T> {
+        private final RemoteTopic<T> topic;
+        private final T msg;
+
+        private Deferred(RemoteTopic<T> topic, T msg) {
+            this.topic = topic;
+            this.msg = msg;
+        }
+
+        private boolean encode() {
+            return tryEncode(topic, msg);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.jetlang.remote;
+
+import org.jetlang.channels.MessageCodec;
+
+/**
+ * Identifies a stream of messages on a connection and the codec used to frame them. Both ends of a connection
+ * must use the same id and a compatible codec.
+ */
+public class RemoteTopic<T> {
+
+    private final int _id;
+    private final MessageCodec<T> _codec;
+
+    public RemoteTopic(int id, MessageCodec<T> codec) {
+        _id = id;
+        _codec = codec;
+    }
+
+    public int getId() {
+        return _id;
+    }
+
+    public MessageCodec<T> getCodec() {
+        return _codec;
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteTopic(" + _id + ")";
+    }
+}
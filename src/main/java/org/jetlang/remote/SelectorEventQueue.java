@@ -0,0 +1,85 @@
+package org.jetlang.remote;
+
+import org.jetlang.core.EventBuffer;
+import org.jetlang.core.EventQueue;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Set;
+
+/**
+ * Event queue that waits on a {@link Selector} instead of a condition, so a single thread runs both queued
+ * events and socket readiness callbacks. Each selected key must carry a Runnable attachment, which is added
+ * to the batch after the queued events.
+ */
+class SelectorEventQueue implements EventQueue {
+
+    private final Selector _selector;
+    private final Object _lock = new Object();
+    private volatile boolean _running = true;
+    private EventBuffer _queue = new EventBuffer();
+
+    SelectorEventQueue(Selector selector) {
+        _selector = selector;
+    }
+
+    public boolean isRunning() {
+        return _running;
+    }
+
+    public void setRunning(boolean isRunning) {
+        _running = isRunning;
+        _selector.wakeup();
+    }
+
+    public void put(Runnable r) {
+        boolean wasEmpty;
+        synchronized (_lock) {
+            wasEmpty = _queue.isEmpty();
+            _queue.add(r);
+        }
+        // a non empty queue is always taken without blocking in select
+        if (wasEmpty) {
+            _selector.wakeup();
+        }
+    }
+
+    public EventBuffer swap(EventBuffer buffer) {
+        boolean block = isEmpty();
+        try {
+            if (block && _running) {
+                _selector.select();
+            } else {
+                _selector.selectNow();
+            }
+            EventBuffer toReturn = takeQueued(buffer);
+            Set<SelectionKey> keys = _selector.selectedKeys();
+            for (SelectionKey key : keys) {
+                toReturn.add((Runnable) key.attachment());
+            }
+            keys.clear();
+            return toReturn;
+        } catch (ClosedSelectorException e) {
+            // disposing
+            return takeQueued(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private EventBuffer takeQueued(EventBuffer buffer) {
+        synchronized (_lock) {
+            EventBuffer toReturn = _queue;
+            _queue = buffer;
+            return toReturn;
+        }
+    }
+
+    public boolean isEmpty() {
+        synchronized (_lock) {
+            return _queue.isEmpty();
+        }
+    }
+}
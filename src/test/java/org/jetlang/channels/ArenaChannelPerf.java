@@ -0,0 +1,48 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures throughput of an {@link ArenaChannel} delivering flyweight records to a thread fiber.
+ */
+public class ArenaChannelPerf {
+
+    public static void main(String[] args) throws InterruptedException {
+        final int count = 50000000;
+        for (int run = 0; run < 3; run++) {
+            Fiber fiber = new ThreadFiber();
+            fiber.start();
+            ArenaChannel<ArenaChannelTest.Tick> channel =
+                    new ArenaChannel<ArenaChannelTest.Tick>(64 * 1024, ArenaChannelTest.Tick.SIZE, new ArenaChannelTest.Tick());
+            final CountDownLatch done = new CountDownLatch(1);
+            channel.subscribe(fiber, new ArenaChannelTest.Tick(), new Callback<ArenaChannelTest.Tick>() {
+                public void onMessage(ArenaChannelTest.Tick tick) {
+                    if (tick.id() == count - 1) {
+                        done.countDown();
+                    }
+                }
+            });
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (long i = 0; i < count; i++) {
+                channel.claim().set(i, 1.0);
+                channel.commit();
+            }
+            long bytes = allocatedBytes() - startBytes;
+            done.await();
+            long nanos = System.nanoTime() - start;
+            System.out.println("msgs/sec: " + (count * 1000000000L / nanos) + " publisher bytes/msg: " + (bytes / (double) count));
+            fiber.dispose();
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,125 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArenaChannelTest {
+
+    static class Tick implements Flyweight {
+        static final int SIZE = 16;
+        private ByteBuffer buffer;
+        private int offset;
+
+        public void wrap(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        long id() {
+            return buffer.getLong(offset);
+        }
+
+        double price() {
+            return buffer.getDouble(offset + 8);
+        }
+
+        void set(long id, double price) {
+            buffer.putLong(offset, id);
+            buffer.putDouble(offset + 8, price);
+        }
+    }
+
+    @Test
+    public void deliversBatchWithOneEvent() {
+        ArenaChannel<Tick> channel = new ArenaChannel<Tick>(8, Tick.SIZE, new Tick());
+        FiberStub fiber = new FiberStub();
+        final List<String> received = new ArrayList<String>();
+        channel.subscribe(fiber, new Tick(), new Callback<Tick>() {
+            public void onMessage(Tick tick) {
+                received.add(tick.id() + "=" + tick.price());
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            channel.claim().set(i, i + 0.5);
+            channel.commit();
+        }
+        assertEquals(1, fiber.Pending.size());
+        fiber.executeAllPending();
+        assertEquals("[0=0.5, 1=1.5, 2=2.5]", received.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void commitWithoutClaim() {
+        new ArenaChannel<Tick>(8, Tick.SIZE, new Tick()).commit();
+    }
+
+    @Test
+    public void slowSubscriberHoldsBackPublisher() throws InterruptedException {
+        final ArenaChannel<Tick> channel = new ArenaChannel<Tick>(4, Tick.SIZE, new Tick());
+        final int count = 100000;
+        final CountDownLatch done = new CountDownLatch(2);
+        final long[] errors = new long[2];
+        List<Fiber> fibers = new ArrayList<Fiber>();
+        for (int s = 0; s < 2; s++) {
+            final int index = s;
+            Fiber fiber = new ThreadFiber();
+            fiber.start();
+            fibers.add(fiber);
+            channel.subscribe(fiber, new Tick(), new Callback<Tick>() {
+                long expected;
+
+                public void onMessage(Tick tick) {
+                    if (tick.id() != expected || tick.price() != expected * 2) {
+                        errors[index]++;
+                    }
+                    expected = tick.id() + 1;
+                    if (expected == count) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        for (long i = 0; i < count; i++) {
+            channel.claim().set(i, i * 2);
+            channel.commit();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, errors[0]);
+        assertEquals(0, errors[1]);
+        for (Fiber fiber : fibers) {
+            fiber.dispose();
+        }
+        assertEquals(0, channel.subscriberCount());
+    }
+
+    @Test
+    public void disposedSubscriberDoesNotBlockPublisher() {
+        ArenaChannel<Tick> channel = new ArenaChannel<Tick>(2, Tick.SIZE, new Tick());
+        FiberStub fiber = new FiberStub();
+        Disposable sub = channel.subscribe(fiber, new Tick(), new Callback<Tick>() {
+            public void onMessage(Tick tick) {
+            }
+        });
+        channel.claim().set(1, 1);
+        channel.commit();
+        sub.dispose();
+        for (int i = 0; i < 10; i++) {
+            channel.claim().set(i, i);
+            channel.commit();
+        }
+        assertEquals(0, channel.subscriberCount());
+    }
+}
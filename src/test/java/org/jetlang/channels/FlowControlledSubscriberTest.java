@@ -0,0 +1,199 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlowControlledSubscriberTest {
+
+    private final List<Integer> received = new ArrayList<Integer>();
+    private final Callback<Integer> onMsg = new Callback<Integer>() {
+        public void onMessage(Integer message) {
+            received.add(message);
+        }
+    };
+
+    private FlowControlledSubscriber<Integer> publishFive(FlowControlPolicy policy, FiberStub stub,
+                                                          MemoryChannel<Integer> channel) {
+        FlowControlledSubscriber<Integer> sub = new FlowControlledSubscriber<Integer>(stub, onMsg, 3, policy);
+        sub.subscribe(channel);
+        for (int i = 0; i < 5; i++) {
+            channel.publish(i);
+        }
+        return sub;
+    }
+
+    @Test
+    public void dropNewest() {
+        FiberStub stub = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        FlowControlledSubscriber<Integer> sub = publishFive(FlowControlPolicy.DropNewest, stub, channel);
+        assertEquals(1, stub.Pending.size());
+        assertEquals(3, sub.getLag());
+        assertEquals(0, sub.getAvailableCredits());
+        assertEquals(2, sub.getDroppedCount());
+        stub.executeAllPending();
+        assertEquals(Arrays.asList(0, 1, 2), received);
+        assertEquals(0, sub.getLag());
+        assertEquals(3, sub.getAvailableCredits());
+        assertEquals(5, sub.getPublishedCount());
+        assertEquals(3, sub.getDeliveredCount());
+    }
+
+    @Test
+    public void dropOldest() {
+        FiberStub stub = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        FlowControlledSubscriber<Integer> sub = publishFive(FlowControlPolicy.DropOldest, stub, channel);
+        stub.executeAllPending();
+        assertEquals(Arrays.asList(2, 3, 4), received);
+        assertEquals(2, sub.getDroppedCount());
+    }
+
+    @Test
+    public void conflate() {
+        FiberStub stub = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        FlowControlledSubscriber<Integer> sub = publishFive(FlowControlPolicy.Conflate, stub, channel);
+        stub.executeAllPending();
+        assertEquals(Arrays.asList(0, 1, 4), received);
+        assertEquals(2, sub.getConflatedCount());
+    }
+
+    @Test
+    public void disconnect() {
+        FiberStub stub = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        FlowControlledSubscriber<Integer> sub = publishFive(FlowControlPolicy.Disconnect, stub, channel);
+        assertTrue(sub.isDisconnected());
+        assertEquals(0, channel.subscriberCount());
+        assertEquals(0, stub.size());
+        stub.executeAllPending();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void deliversOnlyRequestedDemand() {
+        FiberStub stub = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        FlowControlledSubscriber<Integer> sub =
+                new FlowControlledSubscriber<Integer>(stub, onMsg, null, 3, FlowControlPolicy.DropOldest, 0);
+        sub.subscribe(channel);
+        for (int i = 0; i < 5; i++) {
+            channel.publish(i);
+        }
+        assertTrue(stub.Pending.isEmpty());
+        sub.request(2);
+        stub.executeAllPending();
+        assertEquals(Arrays.asList(2, 3), received);
+        assertEquals(0, sub.getDemand());
+        assertEquals(1, sub.getLag());
+        sub.request(Long.MAX_VALUE);
+        sub.request(1);
+        stub.executeAllPending();
+        assertEquals(Arrays.asList(2, 3, 4), received);
+        assertEquals(Long.MAX_VALUE, sub.getDemand());
+    }
+
+    @Test
+    public void blockUntilSubscriberCatchesUp() throws InterruptedException {
+        Fiber consumer = new ThreadFiber();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(10);
+        Callback<Integer> slow = new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                done.countDown();
+            }
+        };
+        final MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        final FlowControlledSubscriber<Integer> sub =
+                new FlowControlledSubscriber<Integer>(consumer, slow, 2, FlowControlPolicy.Block);
+        Disposable d = sub.subscribe(channel);
+        consumer.start();
+        Thread producer = new Thread() {
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    channel.publish(i);
+                }
+            }
+        };
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive());
+        assertTrue(sub.getPublishedCount() <= 4);
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        assertEquals(0, sub.getDroppedCount());
+        d.dispose();
+        assertEquals(0, channel.subscriberCount());
+        consumer.dispose();
+    }
+
+    @Test
+    public void creditIsReturnedAfterCallback() {
+        FiberStub stub = new FiberStub();
+        final MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        final List<Integer> creditsInCallback = new ArrayList<Integer>();
+        final FlowControlledSubscriber<Integer>[] sub = new FlowControlledSubscriber[1];
+        Callback<Integer> republish = new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                received.add(message);
+                creditsInCallback.add(sub[0].getAvailableCredits());
+                if (message == 0) {
+                    channel.publish(1);
+                }
+            }
+        };
+        sub[0] = new FlowControlledSubscriber<Integer>(stub, republish, 1, FlowControlPolicy.DropNewest);
+        sub[0].subscribe(channel);
+        channel.publish(0);
+        stub.executeAllPending();
+        assertEquals(Arrays.asList(0), received);
+        assertEquals(Arrays.asList(0), creditsInCallback);
+        assertEquals(1, sub[0].getDroppedCount());
+        assertEquals(1, sub[0].getAvailableCredits());
+    }
+
+    @Test
+    public void interruptedPublisherKeepsInterruptFlag() throws InterruptedException {
+        FiberStub stub = new FiberStub();
+        final MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        new FlowControlledSubscriber<Integer>(stub, onMsg, 1, FlowControlPolicy.Block).subscribe(channel);
+        channel.publish(0);
+        final boolean[] interrupted = new boolean[1];
+        Thread producer = new Thread() {
+            public void run() {
+                try {
+                    channel.publish(1);
+                } catch (RuntimeException e) {
+                    interrupted[0] = Thread.currentThread().isInterrupted();
+                }
+            }
+        };
+        producer.start();
+        producer.interrupt();
+        producer.join(10000);
+        assertFalse(producer.isAlive());
+        assertTrue(interrupted[0]);
+    }
+}
@@ -0,0 +1,79 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.FiberStub;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FutureReplyTest {
+
+    private final List<String> closed = new ArrayList<String>();
+    private final List<Request<String, Integer>> held = new ArrayList<Request<String, Integer>>();
+    private final MemoryRequestChannel<String, Integer> channel = new MemoryRequestChannel<String, Integer>();
+    private final FiberStub responder = new FiberStub();
+
+    {
+        Callback<Request<String, Integer>> onReq = new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                held.add(message);
+            }
+        };
+        Callback<SessionClosed<String>> onEnd = new Callback<SessionClosed<String>>() {
+            public void onMessage(SessionClosed<String> message) {
+                closed.add(message.getOriginalRequest());
+            }
+        };
+        channel.subscribe(responder, onReq, onEnd);
+    }
+
+    @Test
+    public void completesInlineOnReplyingThread() throws Exception {
+        FutureReply<Integer> future = FutureReply.publish(channel, "hello");
+        final Thread[] completedOn = new Thread[1];
+        CompletableFuture<Integer> plusOne = future.thenApply(new Function<Integer, Integer>() {
+            public Integer apply(Integer integer) {
+                completedOn[0] = Thread.currentThread();
+                return integer + 1;
+            }
+        });
+        responder.executeAllPending();
+        assertFalse(future.isDone());
+        held.get(0).reply(1);
+        held.get(0).reply(2);
+        assertEquals(1, future.get().intValue());
+        assertEquals(2, plusOne.get().intValue());
+        assertEquals(Thread.currentThread(), completedOn[0]);
+        responder.executeAllPending();
+        assertEquals(1, closed.size());
+    }
+
+    @Test
+    public void completesOnSuppliedExecutor() throws Exception {
+        FiberStub requester = new FiberStub();
+        FutureReply<Integer> future = FutureReply.publish(channel, "hello", requester);
+        responder.executeAllPending();
+        held.get(0).reply(1);
+        assertFalse(future.isDone());
+        requester.executeAllPending();
+        assertEquals(1, future.get().intValue());
+    }
+
+    @Test
+    public void cancelClosesSession() {
+        FutureReply<Integer> future = FutureReply.publish(channel, "hello", new SynchronousDisposingExecutor());
+        assertTrue(future.cancel(false));
+        responder.executeAllPending();
+        assertEquals(1, closed.size());
+        held.get(0).reply(1);
+        assertTrue(future.isCancelled());
+    }
+}
@@ -0,0 +1,43 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares publish throughput of a {@link JournaledChannel} with a {@link MemoryChannel}.
+ */
+public class JournaledChannelPerf {
+
+    public static void main(String[] args) throws IOException {
+        int count = 10000000;
+        File dir = File.createTempFile("journal", "");
+        dir.delete();
+        for (int i = 0; i < 3; i++) {
+            run("Memory", new MemoryChannel<Integer>(), count);
+            File runDir = new File(dir, String.valueOf(i));
+            JournaledChannel<Integer> journaled =
+                    new JournaledChannel<Integer>(runDir, 128 * 1024 * 1024, JournaledChannelTest.INT_CODEC, false);
+            run("Journaled", journaled, count);
+            journaled.dispose();
+        }
+    }
+
+    private static void run(String name, Channel<Integer> channel, int count) {
+        final long[] received = new long[1];
+        channel.subscribe(new SynchronousDisposingExecutor(), new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                received[0]++;
+            }
+        });
+        Integer msg = 1;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            channel.publish(msg);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(name + " received: " + received[0] + " ns/msg: " + (nanos / (double) count));
+    }
+}
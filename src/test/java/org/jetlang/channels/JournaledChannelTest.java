@@ -0,0 +1,128 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.FiberStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournaledChannelTest {
+
+    static final MessageCodec<Integer> INT_CODEC = new MessageCodec<Integer>() {
+        public void encode(Integer msg, ByteBuffer target) {
+            target.putInt(msg);
+        }
+
+        public Integer decode(ByteBuffer source) {
+            return source.getInt();
+        }
+    };
+
+    private File dir;
+    private final List<Integer> received = new ArrayList<Integer>();
+    private final Callback<Integer> onMsg = new Callback<Integer>() {
+        public void onMessage(Integer message) {
+            received.add(message);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("journal", "");
+        assertTrue(dir.delete());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void replayThenLive() throws IOException {
+        // 96 byte segments hold eight messages, so the replay crosses segments
+        JournaledChannel<Integer> channel = new JournaledChannel<Integer>(dir, 96, INT_CODEC, false);
+        for (int i = 0; i < 20; i++) {
+            channel.publish(i);
+        }
+        assertEquals(20, channel.getSequence());
+        assertEquals(3, dir.list().length);
+        FiberStub fiber = new FiberStub();
+        channel.subscribeFrom(15, fiber, onMsg);
+        channel.publish(20);
+        fiber.executeAllPending();
+        assertEquals(Arrays.asList(15, 16, 17, 18, 19, 20), received);
+        channel.dispose();
+    }
+
+    @Test
+    public void recoversSequenceAfterRestart() throws IOException {
+        JournaledChannel<Integer> channel = new JournaledChannel<Integer>(dir, 96, INT_CODEC, true);
+        for (int i = 0; i < 10; i++) {
+            channel.publish(i);
+        }
+        channel.dispose();
+
+        JournaledChannel<Integer> restarted = new JournaledChannel<Integer>(dir, 96, INT_CODEC, true);
+        assertEquals(10, restarted.getSequence());
+        restarted.publish(10);
+        restarted.subscribeFrom(0, new SynchronousDisposingExecutor(), onMsg);
+        restarted.publish(11);
+        assertEquals(12, received.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i, received.get(i).intValue());
+        }
+        restarted.dispose();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotSubscribeFromFuture() throws IOException {
+        JournaledChannel<Integer> channel = new JournaledChannel<Integer>(dir, 96, INT_CODEC, false);
+        try {
+            channel.subscribeFrom(1, new SynchronousDisposingExecutor(), onMsg);
+        } finally {
+            channel.dispose();
+        }
+    }
+
+    @Test
+    public void recoveryStopsAtTornRecord() throws IOException {
+        JournaledChannel<Integer> channel = new JournaledChannel<Integer>(dir, 96, INT_CODEC, true);
+        for (int i = 0; i < 10; i++) {
+            channel.publish(i);
+        }
+        channel.dispose();
+        // the length of the last record reached the disk, but not all of its message
+        RandomAccessFile last = new RandomAccessFile(new File(dir, String.format("%020d", 8) + ".journal"), "rw");
+        try {
+            last.seek(12 + 8);
+            last.write(0xff);
+        } finally {
+            last.close();
+        }
+
+        JournaledChannel<Integer> restarted = new JournaledChannel<Integer>(dir, 96, INT_CODEC, true);
+        assertEquals(9, restarted.getSequence());
+        restarted.publish(100);
+        restarted.subscribeFrom(0, new SynchronousDisposingExecutor(), onMsg);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 100), received);
+        restarted.dispose();
+    }
+}
@@ -0,0 +1,106 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MappedRingTest {
+
+    @Test
+    public void readersHaveIndependentCursors() throws Exception {
+        File file = File.createTempFile("ring", ".dat");
+        file.deleteOnExit();
+        MappedRingPublisher<String> publisher =
+                new MappedRingPublisher<String>(file, 4, 32, MappedRingWriterMain.CODEC);
+        MappedRingSubscriber<String> first = new MappedRingSubscriber<String>(file, MappedRingWriterMain.CODEC);
+        final List<String> received = new ArrayList<String>();
+        first.subscribe(new SynchronousDisposingExecutor(), new Callback<String>() {
+            public void onMessage(String message) {
+                received.add(message);
+            }
+        });
+        publisher.publish("a");
+        publisher.publish("b");
+        MappedRingSubscriber<String> second = new MappedRingSubscriber<String>(file, MappedRingWriterMain.CODEC);
+        publisher.publish("c");
+        assertEquals(3, first.poll());
+        assertEquals(1, second.poll());
+        assertEquals(0, first.poll());
+        assertEquals("[a, b, c]", received.toString());
+
+        for (int i = 0; i < 6; i++) {
+            publisher.publish("x" + i);
+        }
+        received.clear();
+        assertEquals(3, first.poll());
+        assertEquals(3, first.getLostCount());
+        assertEquals("[x3, x4, x5]", received.toString());
+        first.dispose();
+        second.dispose();
+        publisher.dispose();
+    }
+
+    @Test
+    public void acrossProcesses() throws Exception {
+        File file = File.createTempFile("ring", ".dat");
+        File ready = new File(file.getPath() + ".ready");
+        file.deleteOnExit();
+        ready.deleteOnExit();
+        final int count = 10000;
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                MappedRingWriterMain.class.getName(), file.getPath(), ready.getPath(), String.valueOf(count));
+        builder.redirectErrorStream(true);
+        Process writer = builder.start();
+        try {
+            BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream()));
+            assertEquals("created", out.readLine());
+
+            MappedRingSubscriber<String> reader = new MappedRingSubscriber<String>(file, MappedRingWriterMain.CODEC);
+            final CountDownLatch done = new CountDownLatch(1);
+            final List<String> received = new ArrayList<String>();
+            Fiber fiber = new ThreadFiber();
+            reader.subscribe(fiber, new Callback<String>() {
+                public void onMessage(String message) {
+                    received.add(message);
+                    if (message.equals("msg" + (count - 1))) {
+                        done.countDown();
+                    }
+                }
+            });
+            fiber.start();
+            Fiber poller = new ThreadFiber();
+            poller.start();
+            reader.start(poller, 0, TimeUnit.MILLISECONDS);
+            assertTrue(ready.createNewFile());
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(0, writer.waitFor());
+            poller.dispose();
+            fiber.dispose();
+            // a reader on another process can be lapped, but the ones it saw must be intact and in order
+            assertEquals(count, received.size() + reader.getLostCount());
+            int last = -1;
+            for (String msg : received) {
+                int i = Integer.parseInt(msg.substring(3));
+                assertTrue(i > last);
+                last = i;
+            }
+            reader.dispose();
+        } finally {
+            writer.destroy();
+        }
+    }
+}
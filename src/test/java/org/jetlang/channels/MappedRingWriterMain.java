@@ -0,0 +1,43 @@
+package org.jetlang.channels;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Writer process for {@link MappedRingTest}. Waits for the reader to signal readiness, then publishes
+ * the requested number of strings.
+ */
+public class MappedRingWriterMain {
+
+    public static final MessageCodec<String> CODEC = new MessageCodec<String>() {
+        public void encode(String msg, ByteBuffer target) {
+            for (int i = 0; i < msg.length(); i++) {
+                target.putChar(msg.charAt(i));
+            }
+        }
+
+        public String decode(ByteBuffer source) {
+            char[] chars = new char[source.remaining() / 2];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = source.getChar();
+            }
+            return new String(chars);
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        File ring = new File(args[0]);
+        File ready = new File(args[1]);
+        int count = Integer.parseInt(args[2]);
+        MappedRingPublisher<String> publisher = new MappedRingPublisher<String>(ring, 64, 64, CODEC);
+        System.out.println("created");
+        System.out.flush();
+        while (!ready.exists()) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < count; i++) {
+            publisher.publish("msg" + i);
+        }
+        publisher.dispose();
+    }
+}
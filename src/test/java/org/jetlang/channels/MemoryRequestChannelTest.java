@@ -2,6 +2,7 @@ package org.jetlang.channels;
 
 import org.jetlang.core.Callback;
 import org.jetlang.core.Disposable;
+import org.jetlang.core.TimeoutWheel;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.PoolFiberFactory;
 import org.junit.After;
@@ -93,6 +94,29 @@ public class MemoryRequestChannelTest {
         assertTrue(done.await(10, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void simpleRequestResponseWithTimeoutWheel() throws InterruptedException {
+        Fiber req = startFiber();
+        TimeoutWheel timeouts = new TimeoutWheel(req, 1, TimeUnit.MILLISECONDS);
+        MemoryRequestChannel<String, Integer> channel = new MemoryRequestChannel<String, Integer>();
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Callback<Integer> onReply = new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                fail();
+            }
+        };
+        Runnable runnable = new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        };
+        AsyncRequest.withOneReply(req, timeouts, channel, "hello", onReply, 10, TimeUnit.MILLISECONDS, runnable);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, timeouts.size());
+        timeouts.dispose();
+    }
+
     @Test
     public void requestForSingleReplyThatTimesOutShouldEndRequest() throws InterruptedException {
         Fiber req = startFiber();
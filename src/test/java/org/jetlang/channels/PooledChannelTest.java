@@ -0,0 +1,135 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Filter;
+import org.jetlang.core.MessageReader;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PooledChannelTest {
+
+    static class Order extends PooledMessage {
+        long id;
+
+        @Override
+        protected void reset() {
+            id = 0;
+        }
+    }
+
+    private final MessagePool<Order> pool = new MessagePool<Order>(new MessagePool.Factory<Order>() {
+        public Order create() {
+            return new Order();
+        }
+    }, 1, 16, true);
+
+    private final Callback<Order> ignore = new Callback<Order>() {
+        public void onMessage(Order message) {
+        }
+    };
+
+    @Test
+    public void returnsToPoolAfterLastSubscriber() {
+        PooledChannel<Order> channel = new PooledChannel<Order>();
+        FiberStub first = new FiberStub();
+        FiberStub second = new FiberStub();
+        final long[] seen = new long[1];
+        channel.subscribe(first, new Callback<Order>() {
+            public void onMessage(Order message) {
+                seen[0] = message.id;
+            }
+        });
+        channel.subscribeBatch(second, new Callback<MessageReader<Order>>() {
+            public void onMessage(MessageReader<Order> message) {
+            }
+        });
+        Order order = pool.acquire();
+        order.id = 7;
+        channel.publish(order);
+        assertEquals(2, order.refCount());
+        first.executeAllPending();
+        assertEquals(7, seen[0]);
+        assertEquals(0, pool.size());
+        second.executeAllPending();
+        assertEquals(0, order.refCount());
+        assertEquals(0, order.id);
+        assertEquals(1, pool.size());
+        assertSame(order, pool.acquire());
+    }
+
+    @Test
+    public void filteredAndUnsubscribedMessagesAreReleased() {
+        PooledChannel<Order> channel = new PooledChannel<Order>();
+        FiberStub fiber = new FiberStub();
+        channel.subscribe(fiber, ignore, new Filter<Order>() {
+            public boolean passes(Order msg) {
+                return msg.id > 0;
+            }
+        });
+        channel.publish(pool.acquire());
+        assertEquals(1, pool.size());
+        assertTrue(pool.getLeaks().isEmpty());
+    }
+
+    @Test
+    public void leakDetection() {
+        PooledChannel<Order> channel = new PooledChannel<Order>();
+        FiberStub fiber = new FiberStub();
+        channel.subscribe(fiber, ignore);
+        channel.publish(pool.acquire());
+        assertEquals(1, pool.getLeaks().size());
+        fiber.executeAllPending();
+        assertTrue(pool.getLeaks().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void doubleRelease() {
+        Order order = pool.acquire();
+        order.release();
+        order.release();
+    }
+
+    @Test
+    public void acrossFibers() throws InterruptedException {
+        final PooledChannel<Order> channel = new PooledChannel<Order>();
+        final int count = 100000;
+        final CountDownLatch done = new CountDownLatch(2);
+        Fiber[] fibers = {new ThreadFiber(), new ThreadFiber()};
+        for (Fiber fiber : fibers) {
+            fiber.start();
+            channel.subscribe(fiber, new Callback<Order>() {
+                int received;
+
+                public void onMessage(Order message) {
+                    if (++received == count) {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < count; i++) {
+            Order order = pool.acquire();
+            order.id = i + 1;
+            channel.publish(order);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        // the last references are released just after the callbacks return
+        for (int i = 0; i < 1000 && !pool.getLeaks().isEmpty(); i++) {
+            Thread.sleep(5);
+        }
+        for (Fiber fiber : fibers) {
+            fiber.dispose();
+        }
+        assertTrue(pool.getLeaks().isEmpty());
+        assertTrue(pool.size() <= 16);
+    }
+}
@@ -0,0 +1,88 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.FiberStub;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares bytes allocated per request/reply for {@link MemoryRequestChannel} with {@link AsyncRequest}
+ * and {@link PooledRequestChannel}. Uses a synchronous executor so all allocation happens on the measured thread.
+ */
+public class PooledRequestChannelPerf {
+
+    private static final Integer REPLY = 1;
+
+    public static void main(String[] args) {
+        int count = 5000000;
+        for (int i = 0; i < 3; i++) {
+            pooled(count);
+            async(count);
+        }
+    }
+
+    private static void pooled(int count) {
+        SynchronousDisposingExecutor fiber = new SynchronousDisposingExecutor();
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(1024);
+        channel.subscribe(fiber, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                message.reply(REPLY);
+            }
+        });
+        final long[] received = new long[1];
+        ReplyHandler<Integer> onReply = new ReplyHandler<Integer>() {
+            public void onReply(long correlationId, Integer reply) {
+                received[0]++;
+            }
+        };
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            channel.send(fiber, "req", onReply);
+        }
+        report("Pooled", count, start, startBytes, received[0]);
+    }
+
+    private static void async(int count) {
+        SynchronousDisposingExecutor exec = new SynchronousDisposingExecutor();
+        FiberStub fiber = new FiberStub() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        MemoryRequestChannel<String, Integer> channel = new MemoryRequestChannel<String, Integer>();
+        channel.subscribe(exec, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                message.reply(REPLY);
+            }
+        });
+        final long[] received = new long[1];
+        Callback<Integer> onReply = new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                received[0]++;
+            }
+        };
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Disposable d = AsyncRequest.withOneReply(fiber, channel, "req", onReply);
+            d.dispose();
+        }
+        report("AsyncRequest", count, start, startBytes, received[0]);
+    }
+
+    private static void report(String name, int count, long start, long startBytes, long received) {
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - startBytes;
+        System.out.println(name + " replies: " + received + " ns/req: " + (nanos / count)
+                + " bytes/req: " + (bytes / (double) count));
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
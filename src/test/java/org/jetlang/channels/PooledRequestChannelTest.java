@@ -0,0 +1,289 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PooledRequestChannelTest {
+
+    private final List<Long> ids = new ArrayList<Long>();
+    private final List<Integer> replies = new ArrayList<Integer>();
+    private final ReplyHandler<Integer> onReply = new ReplyHandler<Integer>() {
+        public void onReply(long correlationId, Integer reply) {
+            ids.add(correlationId);
+            replies.add(reply);
+        }
+    };
+
+    @Test
+    public void requestReplyRecyclesRequest() {
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(1);
+        SynchronousDisposingExecutor fiber = new SynchronousDisposingExecutor();
+        Callback<Request<String, Integer>> onReq = new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                message.reply(message.getRequest().length());
+                message.reply(-1);
+            }
+        };
+        channel.subscribe(fiber, onReq);
+        long first = channel.send(fiber, "a", onReply);
+        long second = channel.send(fiber, "bb", onReply);
+        assertEquals(1, channel.available());
+        assertTrue(first != second);
+        assertEquals(2, replies.size());
+        assertEquals(1, replies.get(0).intValue());
+        assertEquals(2, replies.get(1).intValue());
+        assertEquals(first, ids.get(0).longValue());
+        assertEquals(second, ids.get(1).longValue());
+    }
+
+    @Test
+    public void deferredReplyByCorrelationId() {
+        final PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(2);
+        FiberStub responder = new FiberStub();
+        FiberStub requester = new FiberStub();
+        final List<Long> received = new ArrayList<Long>();
+        Callback<Request<String, Integer>> onReq = new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                received.add(channel.getCorrelationId(message));
+            }
+        };
+        channel.subscribe(responder, onReq);
+        long id = channel.send(requester, "hello", onReply);
+        responder.executeAllPending();
+        assertEquals(id, received.get(0).longValue());
+        assertTrue(channel.reply(id, 5));
+        assertFalse(channel.reply(id, 6));
+        requester.executeAllPending();
+        assertEquals(5, replies.get(0).intValue());
+        assertFalse(channel.reply(id, 7));
+        assertEquals(2, channel.available());
+    }
+
+    @Test
+    public void cancelBeforeAndAfterDelivery() {
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(1);
+        FiberStub responder = new FiberStub();
+        FiberStub requester = new FiberStub();
+        final List<Request<String, Integer>> held = new ArrayList<Request<String, Integer>>();
+        Callback<Request<String, Integer>> onReq = new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                held.add(message);
+            }
+        };
+        channel.subscribe(responder, onReq);
+
+        long queued = channel.send(requester, "queued", onReply);
+        assertTrue(channel.cancel(queued));
+        assertFalse(channel.cancel(queued));
+        responder.executeAllPending();
+        assertTrue(held.isEmpty());
+        assertEquals(1, channel.available());
+
+        long awaiting = channel.send(requester, "awaiting", onReply);
+        responder.executeAllPending();
+        assertEquals(1, held.size());
+        assertTrue(channel.cancel(awaiting));
+        assertEquals(1, channel.available());
+        long next = channel.send(requester, "next", onReply);
+        assertFalse(channel.reply(awaiting, 1));
+        assertTrue(channel.cancel(next));
+        requester.executeAllPending();
+        assertTrue(replies.isEmpty());
+    }
+
+    @Test
+    public void exhaustedPool() {
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(1);
+        FiberStub responder = new FiberStub();
+        channel.subscribe(responder, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+            }
+        });
+        channel.send(responder, "one", onReply);
+        try {
+            channel.send(responder, "two", onReply);
+            throw new AssertionError("expected exhaustion");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void noResponder() {
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(1);
+        FiberStub responder = new FiberStub();
+        Disposable sub = channel.subscribe(responder, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+            }
+        });
+        sub.dispose();
+        assertEquals(0, responder.size());
+        assertEquals(0, channel.send(responder, "nobody", onReply));
+    }
+
+    @Test
+    public void acrossThreads() throws InterruptedException {
+        final PooledRequestChannel<Integer, Integer> channel = new PooledRequestChannel<Integer, Integer>(16);
+        Fiber responder = new ThreadFiber();
+        final Fiber requester = new ThreadFiber();
+        responder.start();
+        requester.start();
+        channel.subscribe(responder, new Callback<Request<Integer, Integer>>() {
+            public void onMessage(Request<Integer, Integer> message) {
+                message.reply(message.getRequest() + 1);
+            }
+        });
+        final int count = 10000;
+        final CountDownLatch done = new CountDownLatch(1);
+        final ReplyHandler<Integer> next = new ReplyHandler<Integer>() {
+            public void onReply(long correlationId, Integer reply) {
+                if (reply == count) {
+                    done.countDown();
+                } else {
+                    channel.send(requester, reply, this);
+                }
+            }
+        };
+        channel.send(requester, 0, next);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(16, channel.available());
+        responder.dispose();
+        requester.dispose();
+    }
+
+    @Test
+    public void cancelDuringCallbackKeepsSlotUntilCallbackReturns() throws InterruptedException {
+        final PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(1);
+        Fiber responder = new ThreadFiber();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch returned = new CountDownLatch(1);
+        final List<Object> seen = new ArrayList<Object>();
+        channel.subscribe(responder, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                seen.add(message.getRequest());
+                seen.add(channel.getCorrelationId(message));
+                message.reply(1);
+                returned.countDown();
+            }
+        });
+        responder.start();
+        FiberStub requester = new FiberStub();
+        long first = channel.send(requester, "first", onReply);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        assertTrue(channel.cancel(first));
+        assertEquals(0, channel.available());
+        release.countDown();
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (channel.available() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, channel.available());
+        assertEquals("first", seen.get(0));
+        assertEquals(first, seen.get(1));
+        assertFalse(channel.reply(first, 2));
+
+        long second = channel.send(requester, "second", onReply);
+        assertTrue(second != first);
+        deadline = System.currentTimeMillis() + 10000;
+        while (requester.Pending.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        requester.executeAllPending();
+        assertEquals(second, ids.get(0).longValue());
+        assertEquals(1, replies.size());
+        responder.dispose();
+    }
+
+    @Test
+    public void disposedResponderReclaimsQueuedRequests() {
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(2);
+        FiberStub responder = new FiberStub();
+        FiberStub requester = new FiberStub();
+        channel.subscribe(responder, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                message.reply(1);
+            }
+        });
+        long first = channel.send(requester, "first", onReply);
+        channel.send(requester, "second", onReply);
+        assertEquals(0, channel.available());
+        List<Runnable> dropped = dispose(responder);
+        assertEquals(2, channel.available());
+        assertFalse(channel.reply(first, 1));
+        assertFalse(channel.cancel(first));
+
+        FiberStub next = new FiberStub();
+        channel.subscribe(next, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                message.reply(2);
+            }
+        });
+        long third = channel.send(requester, "third", onReply);
+        for (Runnable r : dropped) {
+            r.run();
+        }
+        next.executeAllPending();
+        requester.executeAllPending();
+        assertEquals(1, replies.size());
+        assertEquals(third, ids.get(0).longValue());
+        assertEquals(2, channel.available());
+    }
+
+    @Test
+    public void disposedRequesterReclaimsQueuedReplies() {
+        PooledRequestChannel<String, Integer> channel = new PooledRequestChannel<String, Integer>(2);
+        SynchronousDisposingExecutor responder = new SynchronousDisposingExecutor();
+        FiberStub requester = new FiberStub();
+        final List<Request<String, Integer>> held = new ArrayList<Request<String, Integer>>();
+        channel.subscribe(responder, new Callback<Request<String, Integer>>() {
+            public void onMessage(Request<String, Integer> message) {
+                if (message.getRequest().equals("now")) {
+                    message.reply(1);
+                } else {
+                    held.add(message);
+                }
+            }
+        });
+        channel.send(requester, "now", onReply);
+        long later = channel.send(requester, "later", onReply);
+        assertEquals(0, channel.available());
+        List<Runnable> dropped = dispose(requester);
+        assertEquals(2, channel.available());
+        assertFalse(channel.reply(later, 2));
+        for (Runnable r : dropped) {
+            r.run();
+        }
+        assertTrue(replies.isEmpty());
+        assertEquals(2, channel.available());
+    }
+
+    private static List<Runnable> dispose(FiberStub fiber) {
+        for (Disposable d : new ArrayList<Disposable>(fiber.Disposables)) {
+            d.dispose();
+        }
+        List<Runnable> dropped = new ArrayList<Runnable>(fiber.Pending);
+        fiber.Pending.clear();
+        return dropped;
+    }
+}
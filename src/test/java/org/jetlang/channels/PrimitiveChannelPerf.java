@@ -0,0 +1,79 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares {@link LongChannel} with MemoryChannel&lt;Long&gt; delivering to a thread fiber. Reports time and bytes
+ * allocated per message on the publishing thread.
+ */
+public class PrimitiveChannelPerf {
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = 20000000;
+        for (int i = 0; i < 3; i++) {
+            primitive(count);
+            boxed(count);
+        }
+    }
+
+    private static void primitive(final int count) throws InterruptedException {
+        Fiber fiber = new ThreadFiber();
+        fiber.start();
+        final CountDownLatch done = new CountDownLatch(1);
+        LongChannel channel = new LongChannel();
+        channel.subscribe(fiber, new LongCallback() {
+            public void onMessage(long value) {
+                if (value == count - 1) {
+                    done.countDown();
+                }
+            }
+        });
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            channel.publish(i);
+        }
+        long bytes = allocatedBytes() - startBytes;
+        done.await();
+        report("LongChannel", count, start, bytes);
+        fiber.dispose();
+    }
+
+    private static void boxed(final int count) throws InterruptedException {
+        Fiber fiber = new ThreadFiber();
+        fiber.start();
+        final CountDownLatch done = new CountDownLatch(1);
+        MemoryChannel<Long> channel = new MemoryChannel<Long>();
+        channel.subscribe(fiber, new Callback<Long>() {
+            public void onMessage(Long value) {
+                if (value == count - 1) {
+                    done.countDown();
+                }
+            }
+        });
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            channel.publish(i);
+        }
+        long bytes = allocatedBytes() - startBytes;
+        done.await();
+        report("MemoryChannel<Long>", count, start, bytes);
+        fiber.dispose();
+    }
+
+    private static void report(String name, int count, long start, long bytes) {
+        long nanos = System.nanoTime() - start;
+        System.out.println(name + " ns/msg: " + (nanos / (double) count) + " publisher bytes/msg: " + (bytes / (double) count));
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
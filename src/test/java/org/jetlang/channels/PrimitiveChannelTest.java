@@ -0,0 +1,91 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Disposable;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveChannelTest {
+
+    @Test
+    public void longBatchDeliveredByOneEvent() {
+        FiberStub fiber = new FiberStub();
+        LongChannel channel = new LongChannel();
+        final List<Long> received = new ArrayList<Long>();
+        channel.subscribe(fiber, new LongCallback() {
+            public void onMessage(long value) {
+                received.add(value);
+            }
+        });
+        // more than the initial capacity of the queue
+        for (long i = 0; i < 100; i++) {
+            channel.publish(i);
+        }
+        assertEquals(1, fiber.Pending.size());
+        fiber.executeAllPending();
+        assertEquals(100, received.size());
+        assertEquals(99, received.get(99).longValue());
+    }
+
+    @Test
+    public void doubleAndPair() {
+        SynchronousDisposingExecutor exec = new SynchronousDisposingExecutor();
+        DoubleChannel prices = new DoubleChannel();
+        LongDoubleChannel quotes = new LongDoubleChannel();
+        final StringBuilder received = new StringBuilder();
+        prices.subscribe(exec, new DoubleCallback() {
+            public void onMessage(double value) {
+                received.append(value).append(' ');
+            }
+        });
+        Disposable sub = quotes.subscribe(exec, new LongDoubleCallback() {
+            public void onMessage(long key, double value) {
+                received.append(key).append('=').append(value).append(' ');
+            }
+        });
+        prices.publish(1.5);
+        quotes.publish(7, 2.25);
+        assertEquals("1.5 7=2.25 ", received.toString());
+        sub.dispose();
+        assertEquals(0, quotes.subscriberCount());
+        assertEquals(1, prices.subscriberCount());
+        quotes.publish(8, 1);
+        assertEquals("1.5 7=2.25 ", received.toString());
+    }
+
+    @Test
+    public void acrossThreads() throws InterruptedException {
+        Fiber fiber = new ThreadFiber();
+        fiber.start();
+        LongChannel channel = new LongChannel();
+        final int count = 1000000;
+        final CountDownLatch done = new CountDownLatch(1);
+        final long[] expected = new long[1];
+        channel.subscribe(fiber, new LongCallback() {
+            public void onMessage(long value) {
+                if (value == expected[0]) {
+                    expected[0]++;
+                }
+                if (value == count - 1) {
+                    done.countDown();
+                }
+            }
+        });
+        for (long i = 0; i < count; i++) {
+            channel.publish(i);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(count, expected[0]);
+        fiber.dispose();
+    }
+}
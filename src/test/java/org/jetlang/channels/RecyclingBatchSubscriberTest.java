@@ -0,0 +1,79 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.MessageReader;
+import org.jetlang.fibers.FiberStub;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecyclingBatchSubscriberTest {
+
+    private final List<Integer> batchSizes = new ArrayList<Integer>();
+    private final List<Integer> received = new ArrayList<Integer>();
+    private final Callback<MessageReader<Integer>> onBatch = new Callback<MessageReader<Integer>>() {
+        public void onMessage(MessageReader<Integer> message) {
+            batchSizes.add(message.size());
+            for (int i = 0; i < message.size(); i++) {
+                received.add(message.get(i));
+            }
+        }
+    };
+
+    @Test
+    public void onlyOneEventQueuedPerBatch() {
+        FiberStub fiber = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        channel.subscribe(new RecyclingBatchSubscriber<Integer>(fiber, onBatch));
+        for (int i = 0; i < 1000; i++) {
+            channel.publish(i);
+        }
+        assertEquals(1, fiber.Pending.size());
+        fiber.executeAllPending();
+        assertEquals("[1000]", batchSizes.toString());
+        assertEquals(999, received.get(999).intValue());
+
+        channel.publish(1000);
+        channel.publish(1001);
+        fiber.executeAllPending();
+        assertEquals("[1000, 2]", batchSizes.toString());
+    }
+
+    @Test
+    public void messagesPublishedDuringFlushStartNewBatch() {
+        FiberStub fiber = new FiberStub();
+        final MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        channel.subscribe(new RecyclingBatchSubscriber<Integer>(fiber, new Callback<MessageReader<Integer>>() {
+            public void onMessage(MessageReader<Integer> message) {
+                onBatch.onMessage(message);
+                if (message.get(0) == 0) {
+                    channel.publish(2);
+                }
+            }
+        }));
+        channel.publish(0);
+        channel.publish(1);
+        fiber.executeAllPending();
+        assertEquals(1, fiber.Pending.size());
+        fiber.executeAllPending();
+        assertEquals("[2, 1]", batchSizes.toString());
+        assertEquals("[0, 1, 2]", received.toString());
+    }
+
+    @Test
+    public void intervalSchedulesOneFlushPerBatch() {
+        FiberStub fiber = new FiberStub();
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        channel.subscribe(new RecyclingBatchSubscriber<Integer>(fiber, onBatch, 10, TimeUnit.MILLISECONDS));
+        channel.publish(0);
+        channel.publish(1);
+        assertEquals(0, fiber.Pending.size());
+        assertEquals(1, fiber.Scheduled.size());
+        fiber.executeAllScheduled();
+        assertEquals("[2]", batchSizes.toString());
+    }
+}
@@ -0,0 +1,103 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Filter;
+import org.jetlang.core.SynchronousDisposingExecutor;
+import org.jetlang.fibers.FiberStub;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScatterGatherTest {
+
+    private final FiberStub requester = new FiberStub();
+    private final List<Integer> results = new ArrayList<Integer>();
+    private final List<Integer> streamed = new ArrayList<Integer>();
+    private final List<String> closed = new ArrayList<String>();
+    private final Callback<Integer> onResult = new Callback<Integer>() {
+        public void onMessage(Integer message) {
+            results.add(message);
+        }
+    };
+    private final Reducer<Integer, Integer> sum = new Reducer<Integer, Integer>() {
+        public Integer reduce(Integer accumulated, Integer reply) {
+            return accumulated + reply;
+        }
+    };
+
+    private List<MemoryRequestChannel<String, Integer>> shards(int count) {
+        List<MemoryRequestChannel<String, Integer>> shards = new ArrayList<MemoryRequestChannel<String, Integer>>();
+        for (int i = 0; i < count; i++) {
+            final int reply = i + 1;
+            MemoryRequestChannel<String, Integer> shard = new MemoryRequestChannel<String, Integer>();
+            Callback<Request<String, Integer>> onReq = new Callback<Request<String, Integer>>() {
+                public void onMessage(Request<String, Integer> message) {
+                    message.reply(reply);
+                }
+            };
+            Callback<SessionClosed<String>> onEnd = new Callback<SessionClosed<String>>() {
+                public void onMessage(SessionClosed<String> message) {
+                    closed.add(message.getOriginalRequest());
+                }
+            };
+            shard.subscribe(new SynchronousDisposingExecutor(), onReq, onEnd);
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    @Test
+    public void completesOnQuorumAndClosesSessions() {
+        ScatterGather<String, Integer, Integer> sg = new ScatterGather<String, Integer, Integer>(requester, 0, sum);
+        sg.setQuorum(3);
+        sg.setOnReply(new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                streamed.add(message);
+            }
+        });
+        sg.publish(shards(5), "query", onResult);
+        assertEquals(5, requester.Pending.size());
+        requester.executeAllPending();
+        assertEquals(Arrays.asList(1, 2, 3), streamed);
+        assertEquals(Arrays.asList(6), results);
+        assertEquals(5, closed.size());
+    }
+
+    @Test
+    public void completesWhenFilterPasses() {
+        ScatterGather<String, Integer, Integer> sg = new ScatterGather<String, Integer, Integer>(requester, 0, sum);
+        sg.setCompletion(new Filter<Integer>() {
+            public boolean passes(Integer msg) {
+                return msg >= 10;
+            }
+        });
+        sg.publish(shards(5), "query", onResult);
+        requester.executeAllPending();
+        assertEquals(Arrays.asList(10), results);
+    }
+
+    @Test
+    public void timeoutDeliversPartialResult() {
+        final List<Integer> partial = new ArrayList<Integer>();
+        ScatterGather<String, Integer, Integer> sg = new ScatterGather<String, Integer, Integer>(requester, 0, sum);
+        sg.setQuorum(10);
+        sg.setTimeout(new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                partial.add(message);
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        sg.publish(shards(2), "query", onResult);
+        requester.executeAllPending();
+        assertEquals(1, requester.Scheduled.size());
+        requester.executeAllScheduled();
+        assertEquals(Arrays.asList(3), partial);
+        assertTrue(results.isEmpty());
+        assertEquals(2, closed.size());
+    }
+}
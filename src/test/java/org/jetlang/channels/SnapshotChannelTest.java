@@ -0,0 +1,127 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotChannelTest {
+
+    private static final Converter<String, Character> FIRST_CHAR = new Converter<String, Character>() {
+        public Character convert(String msg) {
+            return msg.charAt(0);
+        }
+    };
+
+    private final List<Object> received = new ArrayList<Object>();
+    private final Callback<SnapshotChannel.Snapshot<String>> onSnapshot = new Callback<SnapshotChannel.Snapshot<String>>() {
+        public void onMessage(SnapshotChannel.Snapshot<String> message) {
+            received.add(message.getSequence());
+            for (Sequenced<String> s : message.getMessages()) {
+                received.add(s.getMessage());
+            }
+        }
+    };
+    private final Callback<Sequenced<String>> onDelta = new Callback<Sequenced<String>>() {
+        public void onMessage(Sequenced<String> message) {
+            received.add(message.toString());
+        }
+    };
+
+    @Test
+    public void latestByKeyThenDeltas() {
+        SnapshotChannel<String> channel = SnapshotChannel.latestByKey(FIRST_CHAR);
+        channel.publish("a1");
+        channel.publish("b1");
+        channel.publish("a2");
+        FiberStub fiber = new FiberStub();
+        channel.subscribeWithSnapshot(fiber, onSnapshot, onDelta);
+        channel.publish("b2");
+        fiber.executeAllPending();
+        assertEquals("[3, b1, a2, 4:b2]", received.toString());
+    }
+
+    @Test
+    public void recentHistory() {
+        SnapshotChannel<String> channel = SnapshotChannel.recentHistory(2);
+        channel.publish("x");
+        channel.publish("y");
+        channel.publish("z");
+        FiberStub fiber = new FiberStub();
+        channel.subscribeWithSnapshot(fiber, onSnapshot, onDelta);
+        fiber.executeAllPending();
+        assertEquals("[3, y, z]", received.toString());
+    }
+
+    @Test
+    public void noGapsOrDuplicatesWhilePublishing() throws InterruptedException {
+        final SnapshotChannel<Integer> channel = SnapshotChannel.recentHistory(1);
+        final int count = 100000;
+        Thread publisher = new Thread() {
+            public void run() {
+                for (int i = 1; i <= count; i++) {
+                    channel.publish(i);
+                }
+            }
+        };
+        publisher.start();
+        Fiber fiber = new ThreadFiber();
+        fiber.start();
+        final long[] gaps = new long[1];
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<GapDetector<Integer>> detector = new ArrayList<GapDetector<Integer>>();
+        Callback<SnapshotChannel.Snapshot<Integer>> snapshot = new Callback<SnapshotChannel.Snapshot<Integer>>() {
+            public void onMessage(SnapshotChannel.Snapshot<Integer> message) {
+                GapDetector.GapHandler onGap = new GapDetector.GapHandler() {
+                    public void onGap(long expectedSequence, long receivedSequence) {
+                        gaps[0]++;
+                    }
+                };
+                detector.add(new GapDetector<Integer>(message.getSequence(), new Callback<Sequenced<Integer>>() {
+                    public void onMessage(Sequenced<Integer> msg) {
+                        if (msg.getMessage() == count) {
+                            done.countDown();
+                        }
+                    }
+                }, onGap));
+                if (message.getSequence() == count) {
+                    done.countDown();
+                }
+            }
+        };
+        channel.subscribeWithSnapshot(fiber, snapshot, new Callback<Sequenced<Integer>>() {
+            public void onMessage(Sequenced<Integer> message) {
+                detector.get(0).onMessage(message);
+            }
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, gaps[0]);
+        publisher.join();
+        fiber.dispose();
+    }
+
+    @Test
+    public void gapDetector() {
+        final List<String> gaps = new ArrayList<String>();
+        GapDetector<String> detector = new GapDetector<String>(0, onDelta, new GapDetector.GapHandler() {
+            public void onGap(long expectedSequence, long receivedSequence) {
+                gaps.add(expectedSequence + "-" + receivedSequence);
+            }
+        });
+        detector.onMessage(new Sequenced<String>(1, "a"));
+        detector.onMessage(new Sequenced<String>(1, "dup"));
+        detector.onMessage(new Sequenced<String>(4, "d"));
+        assertEquals("[1:a, 4:d]", received.toString());
+        assertEquals("[2-4]", gaps.toString());
+        assertEquals(4, detector.getLastSequence());
+    }
+}
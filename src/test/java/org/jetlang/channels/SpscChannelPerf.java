@@ -0,0 +1,50 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip latency between two fibers, forwarding a message there and back through a pair of
+ * {@link SpscChannel}s and through a pair of {@link MemoryChannel}s.
+ */
+public class SpscChannelPerf {
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = 200000;
+        for (int i = 0; i < 3; i++) {
+            run("MemoryChannel", new MemoryChannel<CountDownLatch>(), new MemoryChannel<CountDownLatch>(), count);
+            run("SpscChannel", new SpscChannel<CountDownLatch>(1024), new SpscChannel<CountDownLatch>(1024), count);
+        }
+    }
+
+    private static void run(String name, Channel<CountDownLatch> there, final Channel<CountDownLatch> back,
+                            int count) throws InterruptedException {
+        ThreadFiber first = new ThreadFiber();
+        ThreadFiber second = new ThreadFiber();
+        there.subscribe(second, new Callback<CountDownLatch>() {
+            public void onMessage(CountDownLatch message) {
+                back.publish(message);
+            }
+        });
+        back.subscribe(first, new Callback<CountDownLatch>() {
+            public void onMessage(CountDownLatch message) {
+                message.countDown();
+            }
+        });
+        first.start();
+        second.start();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            final CountDownLatch latch = new CountDownLatch(1);
+            there.publish(latch);
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(name + " mean round trip nanos: " + (nanos / count));
+        first.dispose();
+        second.dispose();
+    }
+}
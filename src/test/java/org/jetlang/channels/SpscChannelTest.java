@@ -0,0 +1,104 @@
+package org.jetlang.channels;
+
+import org.jetlang.core.Callback;
+import org.jetlang.core.Disposable;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberStub;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SpscChannelTest {
+
+    private final List<Integer> received = new ArrayList<Integer>();
+    private final Callback<Integer> onMsg = new Callback<Integer>() {
+        public void onMessage(Integer message) {
+            received.add(message);
+        }
+    };
+
+    @Test
+    public void deliversBatchInOneEvent() {
+        FiberStub stub = new FiberStub();
+        SpscChannel<Integer> channel = new SpscChannel<Integer>(8);
+        channel.subscribe(stub, onMsg);
+        for (int i = 0; i < 5; i++) {
+            channel.publish(i);
+        }
+        assertEquals(1, stub.Pending.size());
+        assertEquals(5, channel.size());
+        stub.executeAllPending();
+        assertEquals("[0, 1, 2, 3, 4]", received.toString());
+        assertEquals(0, channel.size());
+        channel.publish(5);
+        assertEquals(1, stub.Pending.size());
+        stub.executeAllPending();
+        assertEquals(6, received.size());
+    }
+
+    @Test
+    public void discardsWithoutSubscriber() {
+        FiberStub stub = new FiberStub();
+        SpscChannel<Integer> channel = new SpscChannel<Integer>(4);
+        channel.publish(1);
+        assertEquals(0, channel.size());
+        Disposable sub = channel.subscribe(stub, onMsg);
+        assertTrue(channel.hasSubscriber());
+        assertEquals(1, stub.Disposables.size());
+        sub.dispose();
+        assertFalse(channel.hasSubscriber());
+        assertEquals(0, stub.Disposables.size());
+        channel.publish(2);
+        stub.executeAllPending();
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void singleSubscriber() {
+        SpscChannel<Integer> channel = new SpscChannel<Integer>(4);
+        channel.subscribe(new FiberStub(), onMsg);
+        try {
+            channel.subscribe(new FiberStub(), onMsg);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void publisherWaitsForFullRing() throws InterruptedException {
+        Fiber consumer = new ThreadFiber();
+        final SpscChannel<Integer> channel = new SpscChannel<Integer>(4);
+        final int count = 100000;
+        final CountDownLatch done = new CountDownLatch(1);
+        final long[] sum = new long[1];
+        channel.subscribe(consumer, new Callback<Integer>() {
+            private int expected;
+
+            public void onMessage(Integer message) {
+                if (message != expected++) {
+                    throw new IllegalStateException(message + " != " + (expected - 1));
+                }
+                sum[0] += message;
+                if (expected == count) {
+                    done.countDown();
+                }
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            channel.publish(i);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals((long) count * (count - 1) / 2, sum[0]);
+        consumer.dispose();
+    }
+}
@@ -0,0 +1,135 @@
+package org.jetlang.core;
+
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BoundedEventQueueTest {
+
+    private final Runnable first = new Noop();
+    private final Runnable second = new Noop();
+    private final Runnable third = new Noop();
+
+    @Test
+    public void dropNewest() {
+        BoundedEventQueue q = new BoundedEventQueue(2, OverflowPolicy.dropNewest());
+        q.put(first);
+        q.put(second);
+        q.put(third);
+        EventBuffer buffer = q.swap(new EventBuffer());
+        assertEquals(2, buffer.size());
+        assertSame(first, buffer.get(0));
+        assertSame(second, buffer.get(1));
+        assertEquals(1, q.getPolicy().getDroppedNewestCount());
+    }
+
+    @Test
+    public void dropOldest() {
+        BoundedEventQueue q = new BoundedEventQueue(2, OverflowPolicy.dropOldest());
+        q.put(first);
+        q.put(second);
+        q.put(third);
+        EventBuffer buffer = q.swap(new EventBuffer());
+        assertEquals(2, buffer.size());
+        assertSame(second, buffer.get(0));
+        assertSame(third, buffer.get(1));
+        assertEquals(1, q.getPolicy().getDroppedOldestCount());
+    }
+
+    @Test
+    public void rejectWithException() {
+        BoundedEventQueue q = new BoundedEventQueue(1, OverflowPolicy.reject());
+        q.put(first);
+        try {
+            q.put(second);
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, q.getPolicy().getRejectedCount());
+    }
+
+    @Test
+    public void rejectWithCallback() {
+        final List<Runnable> rejected = new ArrayList<Runnable>();
+        Callback<Runnable> onReject = new Callback<Runnable>() {
+            public void onMessage(Runnable message) {
+                rejected.add(message);
+            }
+        };
+        BoundedEventQueue q = new BoundedEventQueue(1, OverflowPolicy.reject(onReject));
+        q.put(first);
+        q.put(second);
+        assertEquals(1, rejected.size());
+        assertSame(second, rejected.get(0));
+    }
+
+    @Test
+    public void handOff() {
+        final List<Runnable> overflow = new ArrayList<Runnable>();
+        SynchronousExecutor exec = new SynchronousExecutor() {
+            @Override
+            public void execute(Runnable command) {
+                overflow.add(command);
+            }
+        };
+        BoundedEventQueue q = new BoundedEventQueue(1, OverflowPolicy.handOff(exec));
+        q.put(first);
+        q.put(second);
+        assertEquals(1, overflow.size());
+        assertEquals(1, q.getPolicy().getHandedOffCount());
+        assertEquals(1, q.size());
+    }
+
+    @Test
+    public void blockTimesOutThenRejects() {
+        BoundedEventQueue q = new BoundedEventQueue(1, OverflowPolicy.block(10, TimeUnit.MILLISECONDS));
+        q.put(first);
+        try {
+            q.put(second);
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(1, q.getPolicy().getBlockedCount());
+        assertEquals(1, q.getPolicy().getRejectedCount());
+    }
+
+    @Test
+    public void fiberPostingToItsOwnFullQueueDoesNotDeadlock() throws InterruptedException {
+        BoundedEventQueue q = new BoundedEventQueue(1, OverflowPolicy.block());
+        final Fiber fiber = new ThreadFiber(new RunnableExecutorImpl(new BatchExecutorImpl(), q), null, true);
+        fiber.start();
+        final CountDownLatch done = new CountDownLatch(5);
+        Runnable countDown = new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        };
+        final Runnable selfPost = new Runnable() {
+            public void run() {
+                for (int i = 0; i < 5; i++) {
+                    fiber.execute(countDown);
+                }
+            }
+        };
+        fiber.execute(selfPost);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(q.getPolicy().getAcceptedOverCapCount() > 0);
+        fiber.dispose();
+    }
+
+    private static class Noop implements Runnable {
+        public void run() {
+        }
+    }
+}
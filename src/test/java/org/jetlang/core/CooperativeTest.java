@@ -0,0 +1,77 @@
+package org.jetlang.core;
+
+import org.jetlang.fibers.FiberStub;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CooperativeTest {
+
+    private final List<String> log = new ArrayList<String>();
+
+    /**
+     * Does one unit of work per slice, as if the budget expired after each unit.
+     */
+    private Continuation steps(final int count) {
+        return new Continuation() {
+            private int done;
+
+            public boolean resume(TimeBudget budget) {
+                log.add("step" + done++);
+                return done < count;
+            }
+        };
+    }
+
+    private Runnable logging(final String name) {
+        return new Runnable() {
+            public void run() {
+                log.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void queuedEventsRunBetweenSlices() {
+        FiberStub fiber = new FiberStub();
+        Cooperative.run(fiber, steps(3), 1, TimeUnit.MILLISECONDS, logging("complete"));
+        fiber.execute(logging("a"));
+        fiber.executeAllPending();
+        fiber.execute(logging("b"));
+        fiber.executeAllPending();
+        fiber.executeAllPending();
+        assertEquals("[step0, a, step1, b, step2, complete]", log.toString());
+        assertTrue(fiber.Pending.isEmpty());
+        assertTrue(fiber.Disposables.isEmpty());
+    }
+
+    @Test
+    public void disposeStopsBeforeNextSlice() {
+        FiberStub fiber = new FiberStub();
+        Disposable job = Cooperative.run(fiber, steps(3), 1, TimeUnit.MILLISECONDS, logging("complete"));
+        fiber.executeAllPending();
+        job.dispose();
+        fiber.executeAllPending();
+        assertEquals("[step0]", log.toString());
+        assertTrue(fiber.Disposables.isEmpty());
+    }
+
+    @Test
+    public void budget() throws InterruptedException {
+        TimeBudget budget = new TimeBudget(1, TimeUnit.HOURS);
+        assertFalse(budget.isExpired());
+        assertTrue(budget.remainingNanos() > 0);
+        TimeBudget spent = new TimeBudget(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(5);
+        assertTrue(spent.isExpired());
+        assertEquals(0, spent.remainingNanos());
+        spent.start();
+        assertFalse(spent.isExpired());
+    }
+}
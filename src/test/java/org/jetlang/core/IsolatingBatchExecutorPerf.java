@@ -0,0 +1,39 @@
+package org.jetlang.core;
+
+/**
+ * Compares the time to run batches of events that never fail with {@link BatchExecutorImpl} and
+ * {@link IsolatingBatchExecutor}.
+ */
+public class IsolatingBatchExecutorPerf {
+
+    public static void main(String[] args) {
+        final long[] counter = new long[1];
+        EventBuffer batch = new EventBuffer();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(new Runnable() {
+                public void run() {
+                    counter[0]++;
+                }
+            });
+        }
+        IsolatingBatchExecutor isolating = new IsolatingBatchExecutor(new IsolatingBatchExecutor.ErrorHandler() {
+            public void onError(Runnable event, RuntimeException failure) {
+            }
+        });
+        for (int run = 0; run < 5; run++) {
+            measure("BatchExecutorImpl", new BatchExecutorImpl(), batch);
+            measure("IsolatingBatchExecutor", isolating, batch);
+        }
+        System.out.println(counter[0]);
+    }
+
+    private static void measure(String name, BatchExecutor executor, EventReader batch) {
+        int batches = 100000;
+        long start = System.nanoTime();
+        for (int i = 0; i < batches; i++) {
+            executor.execute(batch);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(name + " ns/event: " + (nanos / (double) batches / batch.size()));
+    }
+}
@@ -0,0 +1,130 @@
+package org.jetlang.core;
+
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IsolatingBatchExecutorTest {
+
+    private final List<String> ran = new ArrayList<String>();
+    private final List<Runnable> failed = new ArrayList<Runnable>();
+    private final IsolatingBatchExecutor.ErrorHandler handler = new IsolatingBatchExecutor.ErrorHandler() {
+        public void onError(Runnable event, RuntimeException failure) {
+            failed.add(event);
+        }
+    };
+
+    private Runnable logging(final String name) {
+        return new Runnable() {
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    private final Runnable failing = new Runnable() {
+        public void run() {
+            throw new IllegalStateException("failed");
+        }
+    };
+
+    @Test
+    public void continuesAfterFailure() {
+        IsolatingBatchExecutor executor = new IsolatingBatchExecutor(handler);
+        EventBuffer batch = new EventBuffer();
+        batch.add(logging("a"));
+        batch.add(failing);
+        batch.add(failing);
+        batch.add(logging("b"));
+        executor.execute(batch);
+        assertEquals("[a, b]", ran.toString());
+        assertEquals(2, failed.size());
+        assertSame(failing, failed.get(0));
+        assertEquals(2, executor.getErrorCount());
+        assertEquals(0, executor.getTripCount());
+    }
+
+    @Test
+    public void threadFiberSurvivesFailure() throws InterruptedException {
+        IsolatingBatchExecutor executor = new IsolatingBatchExecutor(handler);
+        ThreadFiber fiber = new ThreadFiber(new RunnableExecutorImpl(executor), null, true);
+        fiber.start();
+        fiber.execute(failing);
+        final CountDownLatch ran = new CountDownLatch(1);
+        fiber.execute(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.getErrorCount());
+        fiber.dispose();
+    }
+
+    @Test
+    public void breakerHoldsEventsUntilCoolDownWithoutBlocking() throws InterruptedException {
+        IsolatingBatchExecutor executor = new IsolatingBatchExecutor(handler,
+                new IsolatingBatchExecutor.CircuitBreaker(2, 10000, 50, TimeUnit.MILLISECONDS));
+        EventBuffer batch = new EventBuffer();
+        batch.add(failing);
+        batch.add(failing);
+        batch.add(logging("after"));
+        long start = System.nanoTime();
+        executor.execute(batch);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(ran.isEmpty());
+        assertEquals(1, executor.getTripCount());
+        assertTrue(executor.isPaused());
+
+        batch.clear();
+        batch.add(logging("held"));
+        executor.execute(batch);
+        assertTrue(ran.isEmpty());
+
+        Thread.sleep(60);
+        batch.clear();
+        batch.add(logging("new"));
+        executor.execute(batch);
+        assertEquals("[after, held, new]", ran.toString());
+        assertFalse(executor.isPaused());
+
+        batch.clear();
+        batch.add(failing);
+        executor.execute(batch);
+        assertEquals(1, executor.getTripCount());
+    }
+
+    @Test
+    public void scheduledFiberResumesHeldEvents() throws InterruptedException {
+        IsolatingBatchExecutor executor = new IsolatingBatchExecutor(handler,
+                new IsolatingBatchExecutor.CircuitBreaker(1, 10000, 20, TimeUnit.MILLISECONDS));
+        ThreadFiber fiber = new ThreadFiber(new RunnableExecutorImpl(executor), null, true);
+        executor.setScheduler(fiber);
+        fiber.start();
+        final CountDownLatch resumed = new CountDownLatch(1);
+        fiber.execute(failing);
+        fiber.execute(new Runnable() {
+            public void run() {
+                resumed.countDown();
+            }
+        });
+        assertTrue(resumed.await(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.getTripCount());
+        assertFalse(executor.isPaused());
+        fiber.dispose();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void breakerNeedsAtLeastOneFailure() {
+        new IsolatingBatchExecutor.CircuitBreaker(0, 1, 1, TimeUnit.SECONDS);
+    }
+}
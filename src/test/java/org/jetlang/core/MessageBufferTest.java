@@ -0,0 +1,105 @@
+package org.jetlang.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessageBufferTest {
+
+    @Test
+    public void removeFirstThenGrow() {
+        MessageBuffer<Integer> buffer = new MessageBuffer<Integer>(4, 0);
+        for (int i = 0; i < 4; i++) {
+            buffer.add(i);
+        }
+        assertEquals(0, (int) buffer.removeFirst());
+        assertEquals(1, (int) buffer.removeFirst());
+        assertEquals(2, (int) buffer.get(0));
+        for (int i = 4; i < 10; i++) {
+            buffer.add(i);
+        }
+        assertEquals(8, buffer.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i + 2, (int) buffer.get(i));
+        }
+        try {
+            buffer.get(8);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    @Test
+    public void drainToAppends() {
+        MessageBuffer<String> source = new MessageBuffer<String>();
+        MessageBuffer<String> target = new MessageBuffer<String>(1, 0);
+        target.add("a");
+        source.add("b");
+        source.add("c");
+        source.removeFirst();
+        source.add("d");
+        assertEquals(2, source.drainTo(target));
+        assertTrue(source.isEmpty());
+        final List<String> seen = new ArrayList<String>();
+        target.forEach(new Callback<String>() {
+            public void onMessage(String message) {
+                seen.add(message);
+            }
+        });
+        assertEquals("[a, c, d]", seen.toString());
+    }
+
+    @Test
+    public void shrinksAfterQuietClears() {
+        MessageBuffer<Integer> buffer = new MessageBuffer<Integer>(16, 3);
+        for (int i = 0; i < 1000; i++) {
+            buffer.add(i);
+        }
+        buffer.clear();
+        int burst = buffer.capacity();
+        assertTrue(burst >= 1000);
+        buffer.add(1);
+        buffer.clear();
+        buffer.add(1);
+        buffer.clear();
+        assertEquals(burst, buffer.capacity());
+        buffer.add(1);
+        buffer.clear();
+        assertEquals(16, buffer.capacity());
+    }
+
+    @Test
+    public void neverShrinksWhenDisabled() {
+        MessageBuffer<Integer> buffer = new MessageBuffer<Integer>(16, 0);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i);
+        }
+        int burst = buffer.capacity();
+        for (int i = 0; i < 10; i++) {
+            buffer.clear();
+        }
+        assertEquals(burst, buffer.capacity());
+    }
+
+    @Test
+    public void runAll() {
+        final List<Integer> ran = new ArrayList<Integer>();
+        EventBuffer buffer = new EventBuffer();
+        for (int i = 0; i < 3; i++) {
+            final int value = i;
+            buffer.add(new Runnable() {
+                public void run() {
+                    ran.add(value);
+                }
+            });
+        }
+        buffer.removeFirst();
+        new BatchExecutorImpl().execute(buffer);
+        assertEquals("[1, 2]", ran.toString());
+    }
+}
@@ -0,0 +1,95 @@
+package org.jetlang.core;
+
+import org.jetlang.fibers.PoolFiberFactory;
+import org.jetlang.fibers.PriorityFiber;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityEventQueueTest {
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            public void run() {
+                executed.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void higherLanesDrainFirst() {
+        PriorityEventQueue q = new PriorityEventQueue(3);
+        q.put(record("bulk1"));
+        q.put(record("bulk2"));
+        q.put(record("admin"), 1);
+        q.put(record("cancel"), 2);
+        q.put(record("clamped"), 7);
+        EventBuffer buffer = new EventBuffer();
+        assertSame(buffer, q.swap(buffer));
+        new BatchExecutorImpl().execute(buffer);
+        assertEquals(Arrays.asList("cancel", "clamped", "admin", "bulk1", "bulk2"), executed);
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void lowerLanesAreNotStarved() {
+        PriorityLanes lanes = new PriorityLanes(2, 3, 1);
+        for (int i = 0; i < 5; i++) {
+            lanes.add(record("high" + i), 1);
+        }
+        lanes.add(record("low0"), 0);
+        lanes.add(record("low1"), 0);
+        EventBuffer buffer = new EventBuffer();
+        assertEquals(3, lanes.drainTo(buffer));
+        new BatchExecutorImpl().execute(buffer);
+        assertEquals(Arrays.asList("high0", "high1", "low0"), executed);
+        assertEquals(4, lanes.size());
+        assertEquals(3, lanes.size(1));
+    }
+
+    @Test
+    public void threadFiberWithPriorityQueue() throws InterruptedException {
+        PriorityFiber fiber = new ThreadFiber(new RunnableExecutorImpl(new BatchExecutorImpl(), new PriorityEventQueue(2)), null, true);
+        assertPriorityOrder(fiber);
+        fiber.dispose();
+    }
+
+    @Test
+    public void poolFiberWithPriorityLanes() throws InterruptedException {
+        ExecutorService pool = Executors.newCachedThreadPool();
+        PoolFiberFactory factory = new PoolFiberFactory(pool);
+        PriorityFiber fiber = factory.createPriorityFiber(new BatchExecutorImpl(), 2);
+        assertPriorityOrder(fiber);
+        fiber.dispose();
+        factory.dispose();
+        pool.shutdown();
+    }
+
+    private void assertPriorityOrder(PriorityFiber fiber) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        fiber.execute(record("bulk"));
+        fiber.execute(record("cancel"), 1);
+        fiber.execute(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        fiber.start();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("cancel", "bulk"), executed);
+    }
+}
@@ -0,0 +1,66 @@
+package org.jetlang.core;
+
+import org.jetlang.fibers.FiberStub;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutWheelTest {
+
+    private final List<String> fired = new ArrayList<String>();
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            public void run() {
+                fired.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void expiresOnlyDueTimeouts() {
+        FiberStub fiber = new FiberStub();
+        TimeoutWheel wheel = new TimeoutWheel(fiber, 1, TimeUnit.MILLISECONDS, 8);
+        assertEquals(1, fiber.Scheduled.size());
+        long now = System.nanoTime();
+        wheel.schedule(record("short"), 2, TimeUnit.MILLISECONDS);
+        wheel.schedule(record("long"), 20, TimeUnit.MILLISECONDS);
+        assertEquals(2, wheel.size());
+
+        wheel.expire(now + TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(Arrays.asList("short"), fired);
+        assertEquals(1, wheel.size());
+
+        wheel.expire(now + TimeUnit.MILLISECONDS.toNanos(30));
+        assertEquals(Arrays.asList("short", "long"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cancelledTimeoutsDoNotFire() {
+        FiberStub fiber = new FiberStub();
+        TimeoutWheel wheel = new TimeoutWheel(fiber, 1, TimeUnit.MILLISECONDS, 8);
+        long now = System.nanoTime();
+        Disposable first = wheel.schedule(record("first"), 1, TimeUnit.MILLISECONDS);
+        wheel.schedule(record("second"), 1, TimeUnit.MILLISECONDS);
+        first.dispose();
+        first.dispose();
+        assertEquals(1, wheel.size());
+        wheel.expire(now + TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(Arrays.asList("second"), fired);
+    }
+
+    @Test
+    public void dispose() {
+        FiberStub fiber = new FiberStub();
+        TimeoutWheel wheel = new TimeoutWheel(fiber, 1, TimeUnit.MILLISECONDS);
+        wheel.dispose();
+        assertTrue(fiber.Scheduled.isEmpty());
+    }
+}
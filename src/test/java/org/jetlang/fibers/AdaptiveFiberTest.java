@@ -0,0 +1,132 @@
+package org.jetlang.fibers;
+
+import org.jetlang.core.BatchExecutorImpl;
+import org.jetlang.core.Disposable;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveFiberTest {
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private AdaptiveFiber create(AdaptiveFiber.Policy policy) {
+        // samples are taken by the tests
+        return new AdaptiveFiber(pool, scheduler, new BatchExecutorImpl(), policy, 1, TimeUnit.HOURS);
+    }
+
+    private static String threadOf(Fiber fiber) throws InterruptedException {
+        final String[] name = new String[1];
+        final CountDownLatch ran = new CountDownLatch(1);
+        fiber.execute(new Runnable() {
+            public void run() {
+                name[0] = Thread.currentThread().getName();
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        return name[0];
+    }
+
+    @Test
+    public void promotedByDepthAndDemotedWhenIdle() throws InterruptedException {
+        AdaptiveFiber fiber = create(new AdaptiveFiber.Policy(Long.MAX_VALUE, 5, 1, 2));
+        for (int i = 0; i < 5; i++) {
+            fiber.execute(new Runnable() {
+                public void run() {
+                }
+            });
+        }
+        fiber.sample();
+        assertEquals(AdaptiveFiber.Mode.Pooled, fiber.getMode());
+        fiber.sample();
+        assertEquals(AdaptiveFiber.Mode.Dedicated, fiber.getMode());
+        assertEquals(1, fiber.getPromotionCount());
+        fiber.start();
+        assertEquals("AdaptiveFiber", threadOf(fiber));
+
+        fiber.sample();
+        fiber.sample();
+        assertEquals(AdaptiveFiber.Mode.Pooled, fiber.getMode());
+        assertEquals(1, fiber.getDemotionCount());
+        assertFalse("AdaptiveFiber".equals(threadOf(fiber)));
+        fiber.dispose();
+    }
+
+    @Test
+    public void keepsOrderAcrossTransitions() throws InterruptedException {
+        // promoted whenever events are pending and demoted whenever the queue is empty
+        final AdaptiveFiber fiber = create(new AdaptiveFiber.Policy(Long.MAX_VALUE, 1, Long.MAX_VALUE, 1));
+        fiber.start();
+        final int count = 200000;
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicBoolean ordered = new AtomicBoolean(true);
+        Thread producer = new Thread() {
+            public void run() {
+                final int[] expected = new int[1];
+                for (int i = 0; i < count; i++) {
+                    final int value = i;
+                    fiber.execute(new Runnable() {
+                        public void run() {
+                            if (expected[0]++ != value) {
+                                ordered.set(false);
+                            }
+                            if (value == count - 1) {
+                                done.countDown();
+                            }
+                        }
+                    });
+                }
+            }
+        };
+        producer.start();
+        while (done.getCount() > 0) {
+            fiber.sample();
+            Thread.sleep(1);
+        }
+        assertTrue(ordered.get());
+        assertTrue(fiber.getPromotionCount() > 0);
+        fiber.dispose();
+    }
+
+    @Test
+    public void disposeInDedicatedMode() throws InterruptedException {
+        AdaptiveFiber fiber = create(new AdaptiveFiber.Policy(Long.MAX_VALUE, 0, 0, 1));
+        fiber.start();
+        fiber.sample();
+        assertEquals(AdaptiveFiber.Mode.Dedicated, fiber.getMode());
+        final CountDownLatch disposed = new CountDownLatch(1);
+        fiber.add(new Disposable() {
+            public void dispose() {
+                disposed.countDown();
+            }
+        });
+        fiber.dispose();
+        assertEquals(0, disposed.getCount());
+        final AtomicBoolean ran = new AtomicBoolean();
+        fiber.execute(new Runnable() {
+            public void run() {
+                ran.set(true);
+            }
+        });
+        Thread.sleep(10);
+        assertFalse(ran.get());
+    }
+}
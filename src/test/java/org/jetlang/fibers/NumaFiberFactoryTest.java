@@ -0,0 +1,139 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.core.Callback;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NumaFiberFactoryTest {
+
+    private final NumaTopology twoNodes = new NumaTopology(Arrays.asList(
+            Collections.singletonList(0), Collections.singletonList(0)));
+    private NumaFiberFactory factory;
+
+    @After
+    public void dispose() {
+        factory.dispose();
+    }
+
+    @Test
+    public void discoveredTopologyHasEveryNode() {
+        factory = new NumaFiberFactory(NumaTopology.flat(1), 1, 0, false);
+        NumaTopology topology = NumaTopology.discover();
+        assertTrue(topology.nodeCount() >= 1);
+        assertTrue(topology.cpus(0).size() >= 1);
+        assertEquals("0,1,2", NumaTopology.flat(3).cpuList(0));
+    }
+
+    @Test
+    public void fibersSpreadAcrossNodes() {
+        factory = new NumaFiberFactory(twoNodes, 1, 4, false);
+        Fiber first = factory.create();
+        Fiber second = factory.create();
+        assertEquals(0, factory.homeNode(first));
+        assertEquals(1, factory.homeNode(second));
+        assertEquals(1, factory.homeNode(factory.createNear(second)));
+        first.dispose();
+        assertEquals(-1, factory.homeNode(first));
+        assertEquals(0, factory.homeNode(factory.create()));
+    }
+
+    @Test
+    public void subscriptionRunsOnHintedNode() throws InterruptedException {
+        factory = new NumaFiberFactory(twoNodes, 1, 4, false);
+        MemoryChannel<Integer> channel = new MemoryChannel<Integer>();
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(100);
+        Fiber fiber = factory.subscribe(channel, 1, new Callback<Integer>() {
+            public void onMessage(Integer message) {
+                received.add(message);
+                done.countDown();
+            }
+        });
+        fiber.start();
+        for (int i = 0; i < 100; i++) {
+            channel.publish(i);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) received.get(i));
+        }
+        assertEquals(1, factory.homeNode(fiber));
+        assertTrue(factory.getExecutedCount(1) > 0);
+    }
+
+    @Test
+    public void idleNodeStealsFromBackloggedNode() throws InterruptedException {
+        factory = new NumaFiberFactory(twoNodes, 1, 2, false);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Fiber blocker = factory.create(0);
+        blocker.start();
+        blocker.execute(new Runnable() {
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        final CountDownLatch stolen = new CountDownLatch(8);
+        final CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            Fiber fiber = factory.create(0);
+            fiber.start();
+            fiber.execute(new Runnable() {
+                public void run() {
+                    stolen.countDown();
+                    done.countDown();
+                }
+            });
+        }
+        // flushes up to the threshold are left for the blocked node
+        assertTrue(stolen.await(10, TimeUnit.SECONDS));
+        assertTrue(factory.getStolenCount(1) >= 8);
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void idleWorkersParkUntilWorkArrives() throws InterruptedException {
+        factory = new NumaFiberFactory(twoNodes, 1, 4, false);
+        List<Thread> workers = new ArrayList<Thread>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("numa-")) {
+                workers.add(thread);
+            }
+        }
+        assertTrue(workers.size() >= 2);
+        long deadline = System.currentTimeMillis() + 10000;
+        for (Thread worker : workers) {
+            while (worker.isAlive() && worker.getState() != Thread.State.WAITING) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(1);
+            }
+        }
+        Fiber fiber = factory.create(1);
+        fiber.start();
+        final CountDownLatch ran = new CountDownLatch(1);
+        fiber.execute(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+    }
+}
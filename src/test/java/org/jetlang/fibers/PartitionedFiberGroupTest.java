@@ -0,0 +1,149 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.Converter;
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.core.Callback;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedFiberGroupTest {
+
+    private final FiberFactory factory = new FiberFactory() {
+        public Fiber create() {
+            return new ThreadFiber();
+        }
+    };
+    private PartitionedFiberGroup group;
+
+    @After
+    public void tearDown() {
+        if (group != null) {
+            group.dispose();
+        }
+    }
+
+    @Test
+    public void growingMovesOnlyKeysToNewPartition() {
+        group = new PartitionedFiberGroup(factory, 4);
+        Map<Integer, Fiber> before = new HashMap<Integer, Fiber>();
+        Set<Fiber> used = new HashSet<Fiber>();
+        for (int key = 0; key < 10000; key++) {
+            before.put(key, group.fiberFor(key));
+            used.add(group.fiberFor(key));
+        }
+        assertEquals(4, used.size());
+        group.resize(5);
+        int moved = 0;
+        Fiber added = null;
+        for (int key = 0; key < 10000; key++) {
+            Fiber now = group.fiberFor(key);
+            if (now != before.get(key)) {
+                if (added == null) {
+                    added = now;
+                }
+                assertSame(added, now);
+                moved++;
+            }
+        }
+        // roughly a fifth of the keys
+        assertTrue("moved " + moved, moved > 1000 && moved < 3000);
+    }
+
+    @Test
+    public void orderedPerKeyAcrossResize() throws InterruptedException {
+        group = new PartitionedFiberGroup(factory, 2);
+        group.start();
+        final int keys = 64;
+        final int perKey = 2000;
+        final ConcurrentHashMap<Integer, Integer> last = new ConcurrentHashMap<Integer, Integer>();
+        final AtomicInteger errors = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(keys * perKey);
+        MemoryChannel<int[]> channel = new MemoryChannel<int[]>();
+        group.subscribe(channel, new Converter<int[], Integer>() {
+            public Integer convert(int[] msg) {
+                return msg[0];
+            }
+        }, new Callback<int[]>() {
+            public void onMessage(int[] msg) {
+                Integer prior = last.put(msg[0], msg[1]);
+                if ((prior == null ? -1 : prior) != msg[1] - 1) {
+                    errors.incrementAndGet();
+                }
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < perKey; i++) {
+            if (i == perKey / 4) {
+                group.resize(5);
+            } else if (i == perKey / 2) {
+                group.resize(3);
+            }
+            for (int key = 0; key < keys; key++) {
+                channel.publish(new int[]{key, i});
+            }
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        assertEquals(3, group.size());
+    }
+
+    @Test
+    public void resizeOnSingleThreadPoolDoesNotBlockTheThread() throws InterruptedException {
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        PoolFiberFactory pool = new PoolFiberFactory(exec);
+        try {
+            group = new PartitionedFiberGroup(pool, 1);
+            group.start();
+            final int keys = 32;
+            final int perKey = 500;
+            final ConcurrentHashMap<Integer, Integer> last = new ConcurrentHashMap<Integer, Integer>();
+            final AtomicInteger errors = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(keys * perKey);
+            for (int i = 0; i < perKey; i++) {
+                // back to back resizes overlap with handoffs still in progress
+                if (i == 100) {
+                    group.resize(3);
+                    group.resize(2);
+                } else if (i == 300) {
+                    group.resize(4);
+                }
+                for (int key = 0; key < keys; key++) {
+                    final int k = key;
+                    final int seq = i;
+                    group.execute(key, new Runnable() {
+                        public void run() {
+                            Integer prior = last.put(k, seq);
+                            if ((prior == null ? -1 : prior) != seq - 1) {
+                                errors.incrementAndGet();
+                            }
+                            done.countDown();
+                        }
+                    });
+                }
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(0, errors.get());
+            assertEquals(4, group.size());
+        } finally {
+            group.dispose();
+            group = null;
+            pool.dispose();
+            exec.shutdown();
+        }
+    }
+}
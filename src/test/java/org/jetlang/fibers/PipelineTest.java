@@ -0,0 +1,164 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.Publisher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineTest {
+
+    private final List<FiberStub> created = new ArrayList<FiberStub>();
+    private final FiberFactory stubs = new FiberFactory() {
+        public Fiber create() {
+            FiberStub stub = new FiberStub();
+            created.add(stub);
+            return stub;
+        }
+    };
+
+    private final Pipeline.Stage<Integer, Integer> doubler = new Pipeline.Stage<Integer, Integer>() {
+        public void process(Integer input, Publisher<Integer> output) {
+            output.publish(input * 2);
+        }
+    };
+
+    private final Pipeline.Stage<Integer, String> format = new Pipeline.Stage<Integer, String>() {
+        public void process(Integer input, Publisher<String> output) {
+            if (input > 2) {
+                output.publish("v" + input);
+            }
+        }
+    };
+
+    @Test
+    public void fusedStagesShareFiber() {
+        final List<String> received = new ArrayList<String>();
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder(stubs)
+                .then("double", doubler, Pipeline.Placement.Isolated)
+                .then("format", format, Pipeline.Placement.Fused)
+                .build(new Publisher<String>() {
+                    public void publish(String msg) {
+                        received.add(msg);
+                    }
+                });
+        assertEquals(1, pipeline.fiberCount());
+        pipeline.publish(1);
+        pipeline.publish(2);
+        assertEquals(1, created.get(0).Pending.size() - 1);
+        created.get(0).executeAllPending();
+        assertEquals("[v4]", received.toString());
+    }
+
+    @Test
+    public void placementOverriddenByName() {
+        final List<String> received = new ArrayList<String>();
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder(stubs)
+                .then("double", doubler, Pipeline.Placement.Isolated)
+                .then("format", format, Pipeline.Placement.Fused)
+                .place("format", Pipeline.Placement.Isolated)
+                .measure(true)
+                .build(new Publisher<String>() {
+                    public void publish(String msg) {
+                        received.add(msg);
+                    }
+                });
+        assertEquals(2, pipeline.fiberCount());
+        pipeline.publish(3);
+        created.get(0).executeAllPending();
+        assertTrue(received.isEmpty());
+        created.get(1).executeAllPending();
+        assertEquals("[v6]", received.toString());
+        assertEquals(2, pipeline.getStats().size());
+        assertEquals("format", pipeline.getStats().get(1).getName());
+        assertEquals(Pipeline.Placement.Isolated, pipeline.getStats().get(1).getPlacement());
+        assertEquals(1, pipeline.getStats().get(1).getCount());
+    }
+
+    @Test
+    public void acrossThreads() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1000);
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder(new FiberFactory() {
+            public Fiber create() {
+                return new ThreadFiber();
+            }
+        }).then("double", doubler, Pipeline.Placement.Isolated)
+                .then("again", doubler, Pipeline.Placement.Isolated)
+                .then("format", format, Pipeline.Placement.Fused)
+                .measure(true)
+                .build(new Publisher<String>() {
+                    public void publish(String msg) {
+                        done.countDown();
+                    }
+                });
+        pipeline.start();
+        for (int i = 1; i <= 1000; i++) {
+            pipeline.publish(i);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1000, pipeline.getStats().get(0).getCount());
+        pipeline.dispose();
+    }
+
+    @Test
+    public void fusedFirstStageCountsEveryPublishingThread() throws InterruptedException {
+        final AtomicInteger received = new AtomicInteger();
+        final Pipeline<Integer> pipeline = Pipeline.<Integer>builder(stubs)
+                .then("double", doubler, Pipeline.Placement.Fused)
+                .measure(true)
+                .build(new Publisher<Integer>() {
+                    public void publish(Integer msg) {
+                        received.incrementAndGet();
+                    }
+                });
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        pipeline.publish(i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, received.get());
+        assertEquals(40000, pipeline.getStats().get(0).getCount());
+    }
+
+    @Test
+    public void pooledStagesDoNotWaitOnFullRing() throws InterruptedException {
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        PoolFiberFactory pool = new PoolFiberFactory(exec);
+        final CountDownLatch done = new CountDownLatch(1000);
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder(pool)
+                .then("double", doubler, Pipeline.Placement.Isolated)
+                .then("again", doubler, Pipeline.Placement.Isolated)
+                .then("format", format, Pipeline.Placement.Isolated)
+                .ringSize(1)
+                .build(new Publisher<String>() {
+                    public void publish(String msg) {
+                        done.countDown();
+                    }
+                });
+        pipeline.start();
+        for (int i = 1; i <= 1000; i++) {
+            pipeline.publish(i);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pipeline.dispose();
+        pool.dispose();
+        exec.shutdown();
+    }
+}
@@ -0,0 +1,275 @@
+package org.jetlang.fibers;
+
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.core.Callback;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SupervisorTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final FiberFactory threads = new FiberFactory() {
+        public Fiber create() {
+            return new ThreadFiber();
+        }
+    };
+    private final MemoryChannel<String> channel = new MemoryChannel<String>();
+    private final AtomicInteger inits = new AtomicInteger();
+    private Supervisor supervisor;
+
+    @After
+    public void dispose() {
+        supervisor.dispose();
+        scheduler.shutdownNow();
+    }
+
+    private Supervisor.Initializer subscribe(final Callback<String> onMsg) {
+        return new Supervisor.Initializer() {
+            public void init(Fiber fiber) {
+                inits.incrementAndGet();
+                channel.subscribe(fiber, onMsg);
+            }
+        };
+    }
+
+    private Supervisor create(Supervisor.Strategy strategy) {
+        // checks are run by the tests
+        return new Supervisor(scheduler, strategy, 1, 20, 50, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void restartsChildWhoseThreadDied() throws InterruptedException {
+        supervisor = create(Supervisor.Strategy.OneForOne);
+        final CountDownLatch received = new CountDownLatch(1);
+        Supervisor.Child child = supervisor.supervise("worker", threads, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+                if (message.equals("crash")) {
+                    throw new IllegalStateException(message);
+                }
+                received.countDown();
+            }
+        }));
+        Fiber first = child.getFiber();
+        channel.publish("crash");
+        ((ThreadFiber) first).join();
+        supervisor.check();
+        assertEquals(1, child.getRestartCount());
+        assertNotSame(first, child.getFiber());
+        assertEquals(2, inits.get());
+        assertEquals(1, channel.subscriberCount());
+        channel.publish("ok");
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void restartsWedgedChild() throws InterruptedException {
+        supervisor = create(Supervisor.Strategy.OneForOne);
+        final CountDownLatch release = new CountDownLatch(1);
+        Supervisor.Child wedged = supervisor.supervise("wedged", threads, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }));
+        Supervisor.Child healthy = supervisor.supervise("healthy", threads, new Supervisor.Initializer() {
+            public void init(Fiber fiber) {
+            }
+        });
+        channel.publish("block");
+        supervisor.check();
+        Thread.sleep(50);
+        supervisor.check();
+        assertEquals(1, wedged.getRestartCount());
+        assertEquals(0, healthy.getRestartCount());
+        release.countDown();
+    }
+
+    @Test
+    public void oneForAllRestartsSiblings() throws InterruptedException {
+        supervisor = create(Supervisor.Strategy.OneForAll);
+        final FiberStub[] stubs = new FiberStub[1];
+        Supervisor.Child stuck = supervisor.supervise("stuck", new FiberFactory() {
+            public Fiber create() {
+                stubs[0] = new FiberStub();
+                return stubs[0];
+            }
+        }, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+            }
+        }));
+        Supervisor.Child sibling = supervisor.supervise("sibling", threads, new Supervisor.Initializer() {
+            public void init(Fiber fiber) {
+            }
+        });
+        Fiber siblingFiber = sibling.getFiber();
+        supervisor.check();
+        Thread.sleep(50);
+        supervisor.check();
+        assertEquals(1, stuck.getRestartCount());
+        assertEquals(1, sibling.getRestartCount());
+        assertNotSame(siblingFiber, sibling.getFiber());
+    }
+
+    @Test
+    public void backsOffRepeatedRestarts() throws InterruptedException {
+        supervisor = create(Supervisor.Strategy.OneForOne);
+        Supervisor.Child child = supervisor.supervise("stuck", new FiberFactory() {
+            public Fiber create() {
+                return new FiberStub();
+            }
+        }, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+            }
+        }));
+        supervisor.check();
+        Thread.sleep(30);
+        supervisor.check();
+        assertEquals(1, child.getRestartCount());
+        Fiber second = child.getFiber();
+        supervisor.check();
+        Thread.sleep(30);
+        supervisor.check();
+        assertEquals(2, child.getRestartCount());
+        assertSame(second, child.getFiber());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (child.getFiber() == second && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertNotSame(second, child.getFiber());
+        assertEquals(3, inits.get());
+    }
+
+    @Test
+    public void slowInitializerDoesNotBlockChecks() throws InterruptedException {
+        supervisor = create(Supervisor.Strategy.OneForOne);
+        final CountDownLatch initializing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supervisor.Child slow = supervisor.supervise("slow", threads, new Supervisor.Initializer() {
+            private int calls;
+
+            public void init(Fiber fiber) {
+                if (++calls == 2) {
+                    initializing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+        });
+        supervisor.supervise("healthy", threads, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+            }
+        }));
+        ThreadFiber dead = (ThreadFiber) slow.getFiber();
+        dead.dispose();
+        dead.getThread().join(10000);
+        Thread restarting = new Thread() {
+            public void run() {
+                supervisor.check();
+            }
+        };
+        restarting.start();
+        assertTrue(initializing.await(10, TimeUnit.SECONDS));
+        final CountDownLatch checked = new CountDownLatch(1);
+        new Thread() {
+            public void run() {
+                supervisor.check();
+                supervisor.getChildren();
+                checked.countDown();
+            }
+        }.start();
+        assertTrue(checked.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        restarting.join(10000);
+        assertEquals(1, slow.getRestartCount());
+        assertNotSame(dead, slow.getFiber());
+    }
+
+    @Test
+    public void failedRestartIsReportedAndRetried() throws InterruptedException {
+        final List<RuntimeException> errors = new CopyOnWriteArrayList<RuntimeException>();
+        supervisor = new Supervisor(scheduler, Supervisor.Strategy.OneForOne, 1, 20, 10, 10, TimeUnit.MILLISECONDS,
+                new Supervisor.ErrorHandler() {
+                    public void onError(Supervisor.Child child, RuntimeException failure) {
+                        errors.add(failure);
+                    }
+                });
+        final AtomicInteger creates = new AtomicInteger();
+        Supervisor.Child child = supervisor.supervise("flaky", new FiberFactory() {
+            public Fiber create() {
+                if (creates.incrementAndGet() == 2) {
+                    throw new IllegalStateException("no fiber");
+                }
+                return new ThreadFiber();
+            }
+        }, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+            }
+        }));
+        supervisor.start();
+        ThreadFiber first = (ThreadFiber) child.getFiber();
+        first.dispose();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (child.getRestartCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        while (child.getFiber() == first && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, child.getRestartCount());
+        assertEquals(1, errors.size());
+        assertEquals("no fiber", errors.get(0).getMessage());
+        assertNotSame(first, child.getFiber());
+        assertTrue(((ThreadFiber) child.getFiber()).getThread().isAlive());
+    }
+
+    @Test
+    public void rejectedHeartbeatFailsChild() {
+        supervisor = create(Supervisor.Strategy.OneForOne);
+        final AtomicInteger creates = new AtomicInteger();
+        Supervisor.Child child = supervisor.supervise("full", new FiberFactory() {
+            public Fiber create() {
+                if (creates.incrementAndGet() > 1) {
+                    return new FiberStub();
+                }
+                return new FiberStub() {
+                    @Override
+                    public void execute(Runnable command) {
+                        throw new RejectedExecutionException("queue full");
+                    }
+                };
+            }
+        }, subscribe(new Callback<String>() {
+            public void onMessage(String message) {
+            }
+        }));
+        Supervisor.Child healthy = supervisor.supervise("healthy", threads, new Supervisor.Initializer() {
+            public void init(Fiber fiber) {
+            }
+        });
+        supervisor.check();
+        assertEquals(0, child.getRestartCount());
+        supervisor.check();
+        assertEquals(1, child.getRestartCount());
+        assertEquals(0, healthy.getRestartCount());
+    }
+}
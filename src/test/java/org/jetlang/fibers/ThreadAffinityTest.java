@@ -0,0 +1,68 @@
+package org.jetlang.fibers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ThreadAffinityTest {
+
+    @Test
+    public void parseCpuList() {
+        assertEquals(Arrays.asList(0, 1, 2, 5), ThreadAffinity.parseCpuList("0-2,5"));
+        assertEquals(Arrays.asList(3), ThreadAffinity.parseCpuList("3\n"));
+        assertEquals(Collections.<Integer>emptyList(), ThreadAffinity.parseCpuList(""));
+    }
+
+    @Test
+    public void pinnedFiberReportsPlacement() throws InterruptedException {
+        assumeTrue(ThreadAffinity.isSupported());
+        String firstCpu = String.valueOf(ThreadAffinity.parseCpuList(
+                ThreadAffinity.placementOf(ThreadAffinity.currentThreadId()).getAllowedCpus()).get(0));
+        ThreadLayout layout = new ThreadLayout()
+                .assign("pinned", firstCpu)
+                .assign("pinned.scheduler", firstCpu);
+        ThreadFiber fiber = layout.createFiber("pinned");
+        ThreadFiber free = layout.createFiber("free");
+        assertNull(fiber.getPlacement());
+        fiber.start();
+        free.start();
+        final CountDownLatch ran = new CountDownLatch(1);
+        fiber.schedule(new Runnable() {
+            public void run() {
+                ran.countDown();
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        assertTrue(fiber.isPinned());
+        ThreadAffinity.Placement placement = fiber.getPlacement();
+        assertNotNull(placement);
+        assertEquals(firstCpu, placement.getAllowedCpus());
+        assertTrue(layout.misplaced().isEmpty());
+        String report = layout.report();
+        assertTrue(report, report.contains("pinned: assigned=" + firstCpu + " tid="));
+        assertTrue(report, report.contains("free: assigned=any"));
+        fiber.dispose();
+        free.dispose();
+    }
+
+    @Test
+    public void unpinnedFiberLooksUpThreadOnDemand() {
+        assumeTrue(ThreadAffinity.isSupported());
+        ThreadFiber fiber = new ThreadFiber();
+        fiber.start();
+        ThreadAffinity.Placement placement = fiber.getPlacement();
+        assertNotNull(placement);
+        assertTrue(placement.getThreadId() != ThreadAffinity.currentThreadId());
+        assertEquals(placement.getThreadId(), fiber.getPlacement().getThreadId());
+        fiber.dispose();
+    }
+}
@@ -0,0 +1,83 @@
+package org.jetlang.perf;
+
+import org.jetlang.core.Continuation;
+import org.jetlang.core.Cooperative;
+import org.jetlang.core.TimeBudget;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of small events queued on a fiber while it rebuilds a large map, run as one event and as a
+ * {@link Cooperative} job with 1ms slices.
+ */
+public class CooperativeMain {
+
+    private static final int ENTRIES = 1000000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            run(false);
+            run(true);
+        }
+    }
+
+    private static void run(boolean cooperative) throws InterruptedException {
+        ThreadFiber fiber = new ThreadFiber();
+        fiber.start();
+        final TreeMap<Integer, Integer> book = new TreeMap<Integer, Integer>();
+        final CountDownLatch rebuilt = new CountDownLatch(1);
+        final Runnable onComplete = new Runnable() {
+            public void run() {
+                rebuilt.countDown();
+            }
+        };
+        final Continuation rebuild = new Continuation() {
+            private int next;
+
+            public boolean resume(TimeBudget budget) {
+                while (next < ENTRIES) {
+                    book.put(next * 31 % ENTRIES, next);
+                    next++;
+                    if ((next & 255) == 0 && budget.isExpired()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        if (cooperative) {
+            Cooperative.run(fiber, rebuild, 1, TimeUnit.MILLISECONDS, onComplete);
+        } else {
+            fiber.execute(new Runnable() {
+                public void run() {
+                    rebuild.resume(new TimeBudget(1, TimeUnit.HOURS));
+                    onComplete.run();
+                }
+            });
+        }
+        final long[] maxLatency = new long[1];
+        long samples = 0;
+        long start = System.nanoTime();
+        while (rebuilt.getCount() > 0) {
+            final long sent = System.nanoTime();
+            final CountDownLatch ran = new CountDownLatch(1);
+            fiber.execute(new Runnable() {
+                public void run() {
+                    maxLatency[0] = Math.max(maxLatency[0], System.nanoTime() - sent);
+                    ran.countDown();
+                }
+            });
+            ran.await();
+            samples++;
+            Thread.sleep(1);
+        }
+        long total = System.nanoTime() - start;
+        System.out.println((cooperative ? "Cooperative" : "Single event") + " rebuild millis: "
+                + TimeUnit.NANOSECONDS.toMillis(total) + " small events: " + samples
+                + " max latency micros: " + TimeUnit.NANOSECONDS.toMicros(maxLatency[0]));
+        fiber.dispose();
+    }
+}
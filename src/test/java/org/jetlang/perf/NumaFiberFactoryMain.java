@@ -0,0 +1,67 @@
+package org.jetlang.perf;
+
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.NumaFiberFactory;
+import org.jetlang.fibers.NumaTopology;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of messages published by a fiber on node 0 to a subscriber on the same node and on the last node.
+ * Message objects are allocated by the publisher, so the cross node run reads memory from the remote socket.
+ */
+public class NumaFiberFactoryMain {
+
+    public static void main(String[] args) throws InterruptedException {
+        NumaTopology topology = NumaTopology.discover();
+        System.out.println(topology);
+        NumaFiberFactory factory = new NumaFiberFactory(topology);
+        int remote = topology.nodeCount() - 1;
+        if (remote == 0) {
+            System.out.println("Single node, cross node run is also local");
+        }
+        for (int i = 0; i < 5; i++) {
+            run("local", factory, 0, 2000000);
+            run("cross node", factory, remote, 2000000);
+        }
+        factory.dispose();
+    }
+
+    private static void run(String name, NumaFiberFactory factory, int consumerNode, final int count)
+            throws InterruptedException {
+        final MemoryChannel<long[]> channel = new MemoryChannel<long[]>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Fiber consumer = factory.subscribe(channel, consumerNode, new Callback<long[]>() {
+            private long sum;
+            private int received;
+
+            public void onMessage(long[] message) {
+                sum += message[0] + message[7];
+                if (++received == count) {
+                    done.countDown();
+                }
+            }
+        });
+        Fiber producer = factory.create(0);
+        consumer.start();
+        producer.start();
+        long start = System.nanoTime();
+        producer.execute(new Runnable() {
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    long[] msg = new long[8];
+                    msg[0] = i;
+                    channel.publish(msg);
+                }
+            }
+        });
+        done.await(60, TimeUnit.SECONDS);
+        long nanos = System.nanoTime() - start;
+        System.out.println(name + " msgs/sec: " + (count * 1000000000L / nanos));
+        producer.dispose();
+        consumer.dispose();
+    }
+}
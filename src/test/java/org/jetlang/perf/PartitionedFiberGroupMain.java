@@ -0,0 +1,48 @@
+package org.jetlang.perf;
+
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberFactory;
+import org.jetlang.fibers.PartitionedFiberGroup;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures throughput of CPU bound work spread over keys as partitions grow from one to the number of cores.
+ */
+public class PartitionedFiberGroupMain {
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int count = 2000000;
+        FiberFactory factory = new FiberFactory() {
+            public Fiber create() {
+                return new ThreadFiber();
+            }
+        };
+        for (int partitions = 1; partitions <= cores; partitions *= 2) {
+            PartitionedFiberGroup group = new PartitionedFiberGroup(factory, partitions);
+            group.start();
+            final CountDownLatch done = new CountDownLatch(count);
+            Runnable work = new Runnable() {
+                public void run() {
+                    long x = 0;
+                    for (int i = 0; i < 200; i++) {
+                        x += i * 31;
+                    }
+                    if (x != 0) {
+                        done.countDown();
+                    }
+                }
+            };
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                group.execute(i & 1023, work);
+            }
+            done.await();
+            long nanos = System.nanoTime() - start;
+            System.out.println("partitions: " + partitions + " tasks/sec: " + (count * 1000000000L / nanos));
+            group.dispose();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.jetlang.perf;
+
+import org.jetlang.channels.Publisher;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.FiberFactory;
+import org.jetlang.fibers.Pipeline;
+import org.jetlang.fibers.ThreadFiber;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Five stage pipeline as in {@link PipelineLatencyMain}, built with {@link Pipeline}. Compares round trip latency
+ * with every stage isolated against every stage after the first fused, and prints per stage statistics.
+ */
+public class PipelineStagesMain {
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int run = 0; run < 3; run++) {
+            measure(Pipeline.Placement.Isolated);
+            measure(Pipeline.Placement.Fused);
+        }
+    }
+
+    private static void measure(Pipeline.Placement placement) throws InterruptedException {
+        Pipeline.Stage<CountDownLatch, CountDownLatch> pass = new Pipeline.Stage<CountDownLatch, CountDownLatch>() {
+            public void process(CountDownLatch input, Publisher<CountDownLatch> output) {
+                output.publish(input);
+            }
+        };
+        Pipeline.Builder<CountDownLatch, CountDownLatch> builder = Pipeline.<CountDownLatch>builder(new FiberFactory() {
+            public Fiber create() {
+                return new ThreadFiber();
+            }
+        }).then("stage0", pass, Pipeline.Placement.Isolated);
+        for (int i = 1; i < 5; i++) {
+            builder = builder.then("stage" + i, pass, placement);
+        }
+        Pipeline<CountDownLatch> pipeline = builder.measure(true).build(new Publisher<CountDownLatch>() {
+            public void publish(CountDownLatch msg) {
+                msg.countDown();
+            }
+        });
+        pipeline.start();
+        int count = 20000;
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            pipeline.publish(latch);
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(placement + " fibers: " + pipeline.fiberCount() + " mean round trip micros: "
+                + TimeUnit.NANOSECONDS.toMicros(nanos / count));
+        for (Pipeline.StageStats stats : pipeline.getStats()) {
+            System.out.println("  " + stats);
+        }
+        pipeline.dispose();
+    }
+}
@@ -0,0 +1,209 @@
+package org.jetlang.remote;
+
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.channels.MessageCodec;
+import org.jetlang.core.Callback;
+import org.jetlang.fibers.Fiber;
+import org.jetlang.fibers.ThreadFiber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NioChannelBridgeTest {
+
+    private static final MessageCodec<Long> LONG_CODEC = new MessageCodec<Long>() {
+        public void encode(Long msg, ByteBuffer target) {
+            target.putLong(msg);
+        }
+
+        public Long decode(ByteBuffer source) {
+            return source.getLong();
+        }
+    };
+
+    private static final RemoteTopic<Long> PRICES = new RemoteTopic<Long>(1, LONG_CODEC);
+    private static final RemoteTopic<Long> ECHO = new RemoteTopic<Long>(2, LONG_CODEC);
+
+    private NioChannelBridge server;
+    private NioChannelBridge client;
+    private Fiber fiber;
+
+    @Before
+    public void setUp() throws Exception {
+        // small buffers so senders regularly wait for the socket
+        server = new NioChannelBridge(256);
+        client = new NioChannelBridge(256);
+        server.start();
+        client.start();
+        fiber = new ThreadFiber();
+        fiber.start();
+    }
+
+    @After
+    public void tearDown() {
+        client.dispose();
+        server.dispose();
+        fiber.dispose();
+    }
+
+    @Test
+    public void forwardsLocalChannelToRemoteSubscribers() throws Exception {
+        final int count = 100000;
+        MemoryChannel<Long> remote = new MemoryChannel<Long>();
+        final List<Long> received = new ArrayList<Long>();
+        final CountDownLatch done = new CountDownLatch(1);
+        remote.subscribe(fiber, new Callback<Long>() {
+            public void onMessage(Long message) {
+                received.add(message);
+                if (received.size() == count) {
+                    done.countDown();
+                }
+            }
+        });
+        server.route(PRICES, remote);
+        InetSocketAddress address = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new Callback<NioConnection>() {
+                    public void onMessage(NioConnection message) {
+                    }
+                });
+
+        MemoryChannel<Long> local = new MemoryChannel<Long>();
+        NioConnection connection = client.connect(address);
+        connection.forward(local, PRICES);
+        for (long i = 0; i < count; i++) {
+            local.publish(i);
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, received.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void repliesOnAcceptedConnection() throws Exception {
+        final MemoryChannel<Long> requests = new MemoryChannel<Long>();
+        server.route(PRICES, requests);
+        InetSocketAddress address = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new Callback<NioConnection>() {
+                    public void onMessage(final NioConnection connection) {
+                        requests.subscribe(fiber, new Callback<Long>() {
+                            public void onMessage(Long message) {
+                                connection.send(ECHO, message * 2);
+                            }
+                        });
+                    }
+                });
+        MemoryChannel<Long> replies = new MemoryChannel<Long>();
+        client.route(ECHO, replies);
+        final CountDownLatch reply = new CountDownLatch(1);
+        replies.subscribe(fiber, new Callback<Long>() {
+            public void onMessage(Long message) {
+                assertEquals(42, message.longValue());
+                reply.countDown();
+            }
+        });
+        NioConnection connection = client.connect(address);
+        // the accept callback subscribes after the connection is established
+        Thread.sleep(100);
+        connection.send(PRICES, 21L);
+        assertTrue(reply.await(10, TimeUnit.SECONDS));
+        connection.dispose();
+        assertTrue(connection.isClosed());
+        connection.send(PRICES, 1L);
+    }
+
+    @Test
+    public void forwardsOnSelectorFiberWithoutBlocking() throws Exception {
+        final int count = 200000;
+        // the server echoes every message from its selector fiber, which cannot wait for the socket
+        final MemoryChannel<Long> inbound = new MemoryChannel<Long>();
+        server.route(PRICES, inbound);
+        InetSocketAddress address = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                new Callback<NioConnection>() {
+                    public void onMessage(NioConnection connection) {
+                        connection.forward(inbound, ECHO);
+                    }
+                });
+        final SocketChannel socket = SocketChannel.open();
+        socket.socket().setReceiveBufferSize(4096);
+        socket.connect(address);
+        Thread.sleep(100);
+        // writes everything before reading any echo, so the server's write buffers fill
+        Thread writer = new Thread() {
+            public void run() {
+                ByteBuffer frame = ByteBuffer.allocate(16);
+                try {
+                    for (long i = 0; i < count; i++) {
+                        frame.clear();
+                        frame.putInt(12).putInt(PRICES.getId()).putLong(i).flip();
+                        while (frame.hasRemaining()) {
+                            socket.write(frame);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        final CountDownLatch echoed = new CountDownLatch(1);
+        Thread reader = new Thread() {
+            public void run() {
+                ByteBuffer echo = ByteBuffer.allocate(16);
+                try {
+                    for (long i = 0; i < count; i++) {
+                        echo.clear();
+                        while (echo.hasRemaining()) {
+                            if (socket.read(echo) < 0) {
+                                return;
+                            }
+                        }
+                        if (echo.getInt(4) != ECHO.getId() || echo.getLong(8) != i) {
+                            return;
+                        }
+                    }
+                    echoed.countDown();
+                } catch (IOException e) {
+                    // closed
+                }
+            }
+        };
+        writer.setDaemon(true);
+        reader.setDaemon(true);
+        writer.start();
+        try {
+            writer.join(30000);
+            assertFalse(writer.isAlive());
+            reader.start();
+            assertTrue(echoed.await(30, TimeUnit.SECONDS));
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void disposeStopsSelectorFiber() throws Exception {
+        NioChannelBridge bridge = new NioChannelBridge(256);
+        bridge.start();
+        bridge.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new Callback<NioConnection>() {
+            public void onMessage(NioConnection message) {
+            }
+        });
+        bridge.dispose();
+        assertFalse(((ThreadFiber) bridge.getFiber()).getThread().isAlive());
+        assertFalse(bridge.isSelectorOpen());
+    }
+}
@@ -1,10 +1,13 @@
 package org.jetlang.tests;
 
+import org.jetlang.core.BatchExecutorImpl;
 import org.jetlang.core.Disposable;
+import org.jetlang.core.OverflowPolicy;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.PoolFiberFactory;
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -48,4 +51,38 @@ public class PoolFiberTest extends FiberBaseTest {
 
     }
 
+    @Test
+    public void BoundedQueueDropsNewestWhileBusy() throws InterruptedException {
+        OverflowPolicy policy = OverflowPolicy.dropNewest();
+        Fiber fiber = _fiberFactory.create(new BatchExecutorImpl(), 2, policy);
+        fiber.start();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch executed = new CountDownLatch(3);
+        fiber.execute(new Runnable() {
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                executed.countDown();
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        Runnable count = new Runnable() {
+            public void run() {
+                executed.countDown();
+            }
+        };
+        for (int i = 0; i < 5; i++) {
+            fiber.execute(count);
+        }
+        assertEquals(3, policy.getDroppedNewestCount());
+        release.countDown();
+        assertTrue(executed.await(10, TimeUnit.SECONDS));
+        fiber.dispose();
+    }
+
 }